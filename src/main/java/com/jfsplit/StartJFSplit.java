@@ -0,0 +1,39 @@
+/*
+ * StartJFSplit.java
+ * Launcher of the JFSplit GUI or command line
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit;
+
+/**
+ * Starts JFSplit command line if any arguments are given, else the GUI. This
+ * class does not refer to any GUI classes, so AWT and Swing are not loaded
+ * for the command line.
+ * 
+ * @see StartJFSplitCLI
+ * @see StartJFSplitGUI
+ */
+public class StartJFSplit {
+	public static void main(String[] args) {
+		if (args.length > 0) {
+			StartJFSplitCLI.main(args);
+		} else {
+			StartJFSplitGUI.main(args);
+		}
+	}
+}
@@ -0,0 +1,841 @@
+/*
+ * StartJFSplitCLI.java
+ * Starting point of the JFSplit command line
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit;
+
+import com.jfsplit.core.BatchJoinProcess;
+import com.jfsplit.core.BatchResult;
+import com.jfsplit.core.BatchSplitProcess;
+import com.jfsplit.core.CheckpointJournal;
+import com.jfsplit.core.ChecksumSidecar;
+import com.jfsplit.core.DigestAlgorithm;
+import com.jfsplit.core.FileChecksumProcess;
+import com.jfsplit.core.FileJoinProcess;
+import com.jfsplit.core.FileProcess;
+import com.jfsplit.core.FileSplitProcess;
+import com.jfsplit.core.IOEngine;
+import com.jfsplit.core.JobScheduler;
+import com.jfsplit.core.PartDiscovery;
+import com.jfsplit.core.ProcessCaller;
+import com.jfsplit.core.RangeExtractProcess;
+import com.jfsplit.core.SplitManifest;
+import com.jfsplit.core.SplitSet;
+import com.jfsplit.core.SplitSetScanner;
+import com.jfsplit.core.Status;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts JFSplit from the command line, without a GUI. Split, join, their
+ * batch versions, extract and checksum commands run the
+ * <code>com.jfsplit.core</code> processes directly and no AWT or Swing
+ * classes are loaded. Progress, errors and results are written to standard
+ * output as JSON lines:
+ * 
+ * <pre>
+ * {"event":"progress","command":"split","done":1048576,"total":4194304,...}
+ * {"event":"result","command":"split","status":"ok",...}
+ * </pre>
+ * 
+ * Exit code is 0 if the command is completed, 1 if it failed and 2 for
+ * invalid arguments.
+ */
+public class StartJFSplitCLI implements ProcessCaller {
+
+	/**
+	 * Exit code when the command is completed
+	 */
+	public static final int EXIT_OK = 0;
+	/**
+	 * Exit code when the command failed
+	 */
+	public static final int EXIT_FAILED = 1;
+	/**
+	 * Exit code for invalid arguments
+	 */
+	public static final int EXIT_USAGE = 2;
+
+	// interval between progress lines in milli seconds
+	private static final long DEFAULT_INTERVAL = 1000;
+
+	private static final String USAGE = "Usage:\n"
+			+ "  split <file> (--size <bytes>[K|M|G] | --count <parts>)\n"
+			+ "        [--skip-first <parts>] [--skip-last <parts>]\n"
+			+ "        [--parts <n>,<n>-<n>,...] [--dest <folder>]\n"
+			+ "        [--checksums <alg>,...] [--manifest] [--resume]\n"
+			+ "        [--in-place] [--threads <n>] [--mapped]\n"
+			+ "  join <split file | manifest> [--dest <file>] [--verify]\n"
+			+ "        [--resume] [--consume] [--threads <n>] [--mapped]\n"
+			+ "  batch-split <file | folder | @list file>...\n"
+			+ "        (--size <bytes>[K|M|G] | --count <parts>)\n"
+			+ "        [--glob <pattern>] [--devices <n>] [--dest <folder>]\n"
+			+ "        [--checksums <alg>,...] [--manifest] [--resume]\n"
+			+ "        [--threads <n>] [--mapped]\n"
+			+ "  batch-join <folder> [--dest <folder>] [--jobs <n>] [--scan-only]\n"
+			+ "        [--verify] [--resume] [--consume] [--threads <n>]\n"
+			+ "        [--mapped]\n"
+			+ "  extract <split file | manifest> --offset <bytes>[K|M|G]\n"
+			+ "        --length <bytes>[K|M|G] --dest <file>\n"
+			+ "  checksum <file> [--algorithms <alg>,...] [--threads <n>]\n"
+			+ "        [--mapped]\n"
+			+ "Common options: [--interval <milli seconds>]\n"
+			+ "Algorithms: CRC-32, CRC-32C, Adler-32, MD5, SHA-1, SHA-256, xxHash64";
+
+	// options which are not followed by a value
+	private static final String[] FLAGS = { "manifest", "resume", "verify",
+			"mapped", "scan-only", "consume", "in-place" };
+
+	// command being run
+	private String command;
+	// where JSON lines are written
+	private PrintStream out;
+	// first error reported by the process, null if none
+	private volatile String error;
+	// result passed by the process when it is completed
+	private volatile Object[] result;
+	// true when the process is completed
+	private volatile boolean completed;
+	// true when stopped by shutting down the JVM (Ctrl-C)
+	private volatile boolean stopped;
+	// process being run
+	private FileProcess process;
+	// last status passed by the process
+	private volatile Status last_status;
+	// fields of the result line, added by the command
+	private StringBuilder result_fields;
+
+	private StartJFSplitCLI(String command, PrintStream out) {
+		this.command = command;
+		this.out = out;
+		result_fields = new StringBuilder();
+	}
+
+	public static void main(String[] args) {
+		StartJFSplitCLI cli = (args.length > 0) ? new StartJFSplitCLI(args[0],
+				System.out) : null;
+		int exit_code = (cli == null) ? usage("No command") : cli.run(args);
+		// JVM is already shutting down if stopped
+		if (cli == null || !cli.stopped) {
+			System.exit(exit_code);
+		}
+	}
+
+	// prints the usage and returns the exit code for invalid arguments
+	private static int usage(String errmsg) {
+		System.err.println("Error : " + errmsg);
+		System.err.println(USAGE);
+		return EXIT_USAGE;
+	}
+
+	/*
+	 * Runs the command with the arguments (first one is the command) and
+	 * returns the exit code
+	 */
+	private int run(String[] args) {
+
+		// arguments and values of options
+		List<String> arguments = new ArrayList<String>();
+		Map<String, String> options = new HashMap<String, String>();
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith("--")) {
+				String option = args[i].substring(2);
+				if (isFlag(option)) {
+					options.put(option, "true");
+				} else if (i + 1 < args.length) {
+					options.put(option, args[++i]);
+				} else {
+					return usage("No value for --" + option);
+				}
+			} else {
+				arguments.add(args[i]);
+			}
+		}
+		if (arguments.isEmpty()) {
+			return usage("Specify the file for " + command);
+		}
+		File src_file = new File(arguments.get(0)).getAbsoluteFile();
+		if (command.equals("batch-join")) {
+			if (arguments.size() != 1 || !src_file.isDirectory()) {
+				return usage("Specify one folder for " + command);
+			}
+		} else if (!command.equals("batch-split")) {
+			if (arguments.size() != 1) {
+				return usage("Specify one file for " + command);
+			}
+			// consumed split files are found from the journal when joining
+			if (!src_file.isFile() && !command.equals("join")) {
+				return usage(src_file.getPath() + " not found");
+			}
+		}
+
+		try {
+			if (command.equals("batch-split")) {
+				process = createBatchSplitProcess(arguments, options);
+			} else if (command.equals("batch-join")) {
+				process = createBatchJoinProcess(src_file, options);
+			} else if (command.equals("split")) {
+				process = createSplitProcess(src_file, options);
+			} else if (command.equals("join")) {
+				process = createJoinProcess(src_file, options);
+			} else if (command.equals("extract")) {
+				process = createExtractProcess(src_file, options);
+			} else if (command.equals("checksum")) {
+				process = createChecksumProcess(src_file, options);
+			} else {
+				return usage("Unknown command " + command);
+			}
+		} catch (IllegalArgumentException e) {
+			return usage(e.getMessage());
+		} catch (IOException e) {
+			return usage(e.getMessage());
+		}
+
+		// stop the process on Ctrl-C, so that it can be resumed
+		final Thread main_thread = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				if (!completed && error == null) {
+					stopped = true;
+					process.forceStop();
+					try {
+						main_thread.join(10000);
+					} catch (InterruptedException e) {
+						// exit anyway
+					}
+				}
+			}
+		});
+
+		// run in this thread, status is passed by the reporter thread
+		long start_time = System.nanoTime();
+		process.run();
+		long elapsed_ms = (System.nanoTime() - start_time) / 1000000;
+
+		if (stopped) {
+			printLine("{\"event\":\"stopped\",\"command\":" + quote(command)
+					+ "}");
+			return EXIT_FAILED;
+		}
+		if (error != null || !completed) {
+			printLine("{\"event\":\"result\",\"command\":" + quote(command)
+					+ ",\"status\":\"failed\",\"error\":"
+					+ quote(error == null ? "Not completed" : error)
+					+ ",\"elapsed_ms\":" + elapsed_ms + "}");
+			return EXIT_FAILED;
+		}
+
+		if (command.equals("checksum")) {
+			addChecksums(options);
+		} else if (command.equals("split")) {
+			addSplitParts();
+		} else if (command.equals("extract")) {
+			addExtractedParts();
+		} else if (command.startsWith("batch-")
+				&& !addBatchResults((BatchResult[]) result[0])) {
+			printLine("{\"event\":\"result\",\"command\":" + quote(command)
+					+ ",\"status\":\"failed\"" + result_fields
+					+ ",\"elapsed_ms\":" + elapsed_ms + "}");
+			return EXIT_FAILED;
+		}
+		printLine("{\"event\":\"result\",\"command\":" + quote(command)
+				+ ",\"status\":\"ok\"" + result_fields + ",\"elapsed_ms\":"
+				+ elapsed_ms + "}");
+		return EXIT_OK;
+	}
+
+	// checks whether the option is not followed by a value
+	private static boolean isFlag(String option) {
+		for (String flag : FLAGS) {
+			if (flag.equals(option)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// creates split process from the options
+	private FileProcess createSplitProcess(File src_file,
+			Map<String, String> options) {
+
+		long src_size = src_file.length();
+		long part_size;
+		int part_nos;
+		if (options.containsKey("size") == options.containsKey("count")) {
+			throw new IllegalArgumentException(
+					"Specify either --size or --count for split");
+		} else if (options.containsKey("size")) {
+			/*
+			 * a part larger than the source file is of its size, so that
+			 * offsets past a part do not overflow
+			 */
+			part_size = parseSize(options.get("size"));
+			if (src_size > 0) {
+				part_size = Math.min(part_size, src_size);
+			}
+			part_nos = (int) ((src_size + part_size - 1) / part_size);
+		} else {
+			part_nos = parseNumber(options, "count", 0);
+			if (part_nos <= 0) {
+				throw new IllegalArgumentException(
+						"Invalid number of parts for split files");
+			}
+			// an empty file can not be divided into parts
+			if (src_size == 0) {
+				throw new IllegalArgumentException(src_file.getName()
+						+ " is empty");
+			}
+			part_size = (src_size + part_nos - 1) / part_nos;
+		}
+		int skip_first_nos = parseNumber(options, "skip-first", 0);
+		int skip_last_nos = parseNumber(options, "skip-last", 0);
+		// part size should not change when splitting in place is resumed
+		if (options.containsKey("in-place") && !options.containsKey("size")) {
+			throw new IllegalArgumentException(
+					"Specify --size for splitting in place");
+		}
+
+		File dest_folder = options.containsKey("dest") ? new File(
+				options.get("dest")).getAbsoluteFile() : src_file
+				.getParentFile();
+		if (!dest_folder.isDirectory()) {
+			throw new IllegalArgumentException(dest_folder.getPath()
+					+ " is not a folder");
+		}
+
+		FileSplitProcess split_process = new FileSplitProcess(this, src_file,
+				dest_folder, part_size, part_nos, skip_first_nos,
+				skip_last_nos);
+		split_process.setThreadNos(parseNumber(options, "threads", 1));
+		split_process.setIOEngine(getIOEngine(options));
+		split_process.setStatusInterval(getInterval(options));
+		if (options.containsKey("checksums")) {
+			split_process.setChecksumAlgorithms(parseAlgorithms(options
+					.get("checksums")));
+		}
+		split_process.setWriteManifest(options.containsKey("manifest"));
+		split_process.setResume(options.containsKey("resume"));
+		split_process.setSplitInPlace(options.containsKey("in-place"));
+		if (options.containsKey("parts")) {
+			split_process.setSelectedParts(FileSplitProcess
+					.parsePartRanges(options.get("parts")));
+		}
+
+		result_fields.append(",\"source\":").append(quote(src_file.getPath()))
+				.append(",\"dest\":").append(quote(dest_folder.getPath()))
+				.append(",\"part_size\":").append(part_size);
+		return split_process;
+	}
+
+	/*
+	 * creates batch split process from the options, arguments are source
+	 * files and folders
+	 */
+	private FileProcess createBatchSplitProcess(List<String> arguments,
+			Map<String, String> options) throws IOException {
+
+		if (options.containsKey("size") == options.containsKey("count")) {
+			throw new IllegalArgumentException(
+					"Specify either --size or --count for batch-split");
+		}
+		long part_size = options.containsKey("size") ? parseSize(options
+				.get("size")) : 0;
+		int part_nos = parseNumber(options, "count", 0);
+		if (part_size == 0 && part_nos <= 0) {
+			throw new IllegalArgumentException(
+					"Invalid number of parts for split files");
+		}
+
+		// files of folders are matched by the pattern, files are taken as such
+		List<File> source_files = new ArrayList<File>();
+		for (String argument : arguments) {
+			File source = new File(argument).getAbsoluteFile();
+			if (argument.startsWith("@") && !source.exists()) {
+				// list file with a source file in each line
+				for (String line : Files.readAllLines(Paths.get(argument
+						.substring(1)))) {
+					if (line.trim().length() > 0) {
+						source_files.add(new File(line.trim())
+								.getAbsoluteFile());
+					}
+				}
+			} else if (source.isDirectory()) {
+				source_files.addAll(Arrays.asList(BatchSplitProcess
+						.findSourceFiles(source, options.get("glob"))));
+			} else if (source.isFile()) {
+				source_files.add(source);
+			} else {
+				throw new IllegalArgumentException(source.getPath()
+						+ " not found");
+			}
+		}
+		if (source_files.isEmpty()) {
+			throw new IllegalArgumentException("No files to split");
+		}
+
+		File dest_folder = null;
+		if (options.containsKey("dest")) {
+			dest_folder = new File(options.get("dest")).getAbsoluteFile();
+			if (!dest_folder.isDirectory()) {
+				throw new IllegalArgumentException(dest_folder.getPath()
+						+ " is not a folder");
+			}
+		}
+
+		BatchSplitProcess batch_process = new BatchSplitProcess(this,
+				source_files.toArray(new File[source_files.size()]),
+				dest_folder, part_size, part_nos);
+		batch_process.setMaxDevices(parseNumber(options, "devices", 0));
+		batch_process.setThreadNos(parseNumber(options, "threads", 1));
+		batch_process.setIOEngine(getIOEngine(options));
+		batch_process.setStatusInterval(getInterval(options));
+		if (options.containsKey("checksums")) {
+			batch_process.setChecksumAlgorithms(parseAlgorithms(options
+					.get("checksums")));
+		}
+		batch_process.setWriteManifest(options.containsKey("manifest"));
+		batch_process.setResume(options.containsKey("resume"));
+
+		result_fields.append(",\"files\":").append(source_files.size());
+		return batch_process;
+	}
+
+	/*
+	 * creates batch join process for the complete split sets found in the
+	 * folder tree, after printing a line for each set found
+	 */
+	private FileProcess createBatchJoinProcess(File src_folder,
+			Map<String, String> options) throws IOException {
+
+		File dest_folder = null;
+		if (options.containsKey("dest")) {
+			dest_folder = new File(options.get("dest")).getAbsoluteFile();
+			if (!dest_folder.isDirectory()) {
+				throw new IllegalArgumentException(dest_folder.getPath()
+						+ " is not a folder");
+			}
+		}
+
+		SplitSetScanner scanner = new SplitSetScanner();
+		scanner.scan(src_folder);
+		List<SplitSet> split_sets = scanner.getSplitSets();
+		for (SplitSet split_set : split_sets) {
+			StringBuilder line = new StringBuilder();
+			line.append("{\"event\":\"set\",\"command\":")
+					.append(quote(command))
+					.append(",\"file\":")
+					.append(quote(split_set.getJoinedFile(dest_folder)
+							.getPath())).append(",\"parts\":")
+					.append(split_set.getPartCount())
+					.append(",\"manifest\":")
+					.append(split_set.getManifest() != null);
+			if (split_set.isComplete()) {
+				line.append(",\"status\":\"complete\"}");
+			} else {
+				line.append(",\"status\":\"incomplete\",\"missing\":")
+						.append(quote(getRanges(split_set.getMissingParts())))
+						.append('}');
+			}
+			printLine(line.toString());
+		}
+
+		List<SplitSet> complete_sets = scanner.getCompleteSets();
+		result_fields.append(",\"sets\":").append(split_sets.size())
+				.append(",\"incomplete\":")
+				.append(split_sets.size() - complete_sets.size())
+				.append(",\"unreadable\":").append(scanner.getFailedPaths());
+
+		// only the sets are listed with --scan-only
+		BatchJoinProcess batch_process = new BatchJoinProcess(this,
+				options.containsKey("scan-only") ? new ArrayList<SplitSet>()
+						: complete_sets, dest_folder);
+		batch_process.setMaxJobs(parseNumber(options, "jobs",
+				JobScheduler.DEFAULT_MAX_JOBS));
+		batch_process.setThreadNos(parseNumber(options, "threads", 1));
+		batch_process.setIOEngine(getIOEngine(options));
+		batch_process.setStatusInterval(getInterval(options));
+		batch_process.setVerify(options.containsKey("verify"));
+		batch_process.setResume(options.containsKey("resume"));
+		batch_process.setConsumeParts(options.containsKey("consume"));
+		return batch_process;
+	}
+
+	// indexes as ranges like 3-5,9
+	private static String getRanges(int[] indexes) {
+		StringBuilder ranges = new StringBuilder();
+		for (int i = 0; i < indexes.length; i++) {
+			int first = indexes[i];
+			while (i + 1 < indexes.length && indexes[i + 1] == indexes[i] + 1) {
+				i++;
+			}
+			if (ranges.length() > 0) {
+				ranges.append(',');
+			}
+			ranges.append(first);
+			if (indexes[i] != first) {
+				ranges.append('-').append(indexes[i]);
+			}
+		}
+		return ranges.toString();
+	}
+
+	/*
+	 * prints a line for the result of each file and adds the totals to the
+	 * result line, returns false if any file failed
+	 */
+	private boolean addBatchResults(BatchResult[] results) {
+		int failed_files = 0;
+		long total_bytes = 0;
+		for (BatchResult file_result : results) {
+			StringBuilder line = new StringBuilder();
+			line.append("{\"event\":\"file\",\"command\":")
+					.append(quote(command)).append(",\"file\":")
+					.append(quote(file_result.getFile().getPath()));
+			if (file_result.isCompleted()) {
+				total_bytes += file_result.getBytes();
+				line.append(",\"status\":\"ok\",\"bytes\":").append(
+						file_result.getBytes());
+			} else {
+				failed_files++;
+				line.append(",\"status\":\"failed\",\"error\":").append(
+						quote(file_result.getError()));
+			}
+			line.append(",\"elapsed_ms\":")
+					.append(file_result.getElapsedTime() / 1000000)
+					.append('}');
+			printLine(line.toString());
+		}
+		result_fields.append(",\"failed\":").append(failed_files)
+				.append(",\"bytes\":").append(total_bytes);
+		if (last_status != null) {
+			result_fields.append(",\"average_mbps\":")
+					.append(Math.round(last_status.getAverageRate() * 10) / 10.0)
+					.append(",\"peak_mbps\":")
+					.append(Math.round(last_status.getPeakRate() * 10) / 10.0);
+		}
+		return failed_files == 0;
+	}
+
+	// creates join process from the options
+	private FileProcess createJoinProcess(File src_file,
+			Map<String, String> options) throws IOException {
+
+		File src_folder = src_file.getParentFile();
+		String src_filename = src_file.getName();
+		int ext_index = src_filename.lastIndexOf('.');
+		if (ext_index <= 0) {
+			throw new IllegalArgumentException(src_filename
+					+ " is not a split file");
+		}
+		String joined_filename = src_filename.substring(0, ext_index);
+		File dest_file = options.containsKey("dest") ? new File(
+				options.get("dest")).getAbsoluteFile() : new File(src_folder,
+				joined_filename);
+
+		/*
+		 * a split file consumed by an interrupted joining is not found, the
+		 * split files are taken from the journal of the destination file
+		 */
+		if (!src_file.isFile()
+				&& (!options.containsKey("consume") || !CheckpointJournal
+						.getJournalFile(dest_file).isFile())) {
+			throw new IllegalArgumentException(src_file.getPath()
+					+ " not found");
+		}
+
+		FileJoinProcess join_process;
+		File[] source_files;
+		SplitManifest manifest = null;
+		if (src_filename.toLowerCase().endsWith(
+				"." + SplitManifest.MANIFEST_FILE_EXT)) {
+			// split files and their sizes are taken from the manifest
+			manifest = SplitManifest.read(src_file);
+			source_files = manifest.getPartFiles(src_folder);
+			join_process = new FileJoinProcess(this, manifest, src_folder,
+					dest_file);
+		} else {
+			try {
+				source_files = PartDiscovery.findParts(src_file);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(src_filename
+						+ " is not a split file");
+			}
+			join_process = new FileJoinProcess(this, source_files, dest_file);
+		}
+
+		if (options.containsKey("verify") && manifest != null) {
+			// expected checksums are in the manifest
+			join_process.setChecksumSidecar(manifest.toChecksumSidecar());
+		} else if (options.containsKey("verify")) {
+			File sidecar_file = ChecksumSidecar.getSidecarFile(src_folder,
+					joined_filename);
+			if (!sidecar_file.exists()) {
+				throw new IllegalArgumentException("Checksum file "
+						+ sidecar_file.getName() + " not found");
+			}
+			join_process
+					.setChecksumSidecar(ChecksumSidecar.read(sidecar_file));
+		}
+		join_process.setThreadNos(parseNumber(options, "threads", 1));
+		join_process.setIOEngine(getIOEngine(options));
+		join_process.setStatusInterval(getInterval(options));
+		join_process.setResume(options.containsKey("resume"));
+		join_process.setConsumeParts(options.containsKey("consume"));
+
+		result_fields.append(",\"dest\":").append(quote(dest_file.getPath()))
+				.append(",\"parts\":").append(source_files.length);
+		return join_process;
+	}
+
+	/*
+	 * creates process extracting a range of the original file from the split
+	 * files of a split file or manifest
+	 */
+	private FileProcess createExtractProcess(File src_file,
+			Map<String, String> options) {
+		if (!options.containsKey("offset") || !options.containsKey("length")
+				|| !options.containsKey("dest")) {
+			throw new IllegalArgumentException(
+					"Specify --offset, --length and --dest for extract");
+		}
+		long offset = parseBytes(options.get("offset"));
+		long length = parseBytes(options.get("length"));
+		if (offset < 0 || length < 0) {
+			throw new IllegalArgumentException("Invalid range "
+					+ options.get("offset") + " " + options.get("length"));
+		}
+		File dest_file = new File(options.get("dest")).getAbsoluteFile();
+
+		RangeExtractProcess extract_process = new RangeExtractProcess(this,
+				src_file, offset, length, dest_file);
+		extract_process.setStatusInterval(getInterval(options));
+
+		result_fields.append(",\"source\":").append(quote(src_file.getPath()))
+				.append(",\"dest\":").append(quote(dest_file.getPath()))
+				.append(",\"offset\":").append(offset)
+				.append(",\"length\":").append(length);
+		return extract_process;
+	}
+
+	/*
+	 * adds number of split files to the result line, source file of a resumed
+	 * splitting in place is shorter than the original file
+	 */
+	private void addSplitParts() {
+		result_fields.append(",\"parts\":").append((Integer) result[0]);
+	}
+
+	// adds split files read by the extract process to the result line
+	private void addExtractedParts() {
+		if (result != null) {
+			// numbers of split files start from 1
+			result_fields.append(",\"first_part\":")
+					.append((Integer) result[0] + 1)
+					.append(",\"last_part\":")
+					.append((Integer) result[1] + 1);
+		}
+	}
+
+	// creates checksum process from the options
+	private FileProcess createChecksumProcess(File src_file,
+			Map<String, String> options) {
+		FileChecksumProcess checksum_process = new FileChecksumProcess(this,
+				src_file);
+		if (options.containsKey("algorithms")) {
+			checksum_process.setAlgorithms(parseAlgorithms(options
+					.get("algorithms")));
+		}
+		checksum_process.setThreadNos(parseNumber(options, "threads", 1));
+		checksum_process.setIOEngine(getIOEngine(options));
+		checksum_process.setStatusInterval(getInterval(options));
+
+		result_fields.append(",\"source\":").append(quote(src_file.getPath()));
+		return checksum_process;
+	}
+
+	// adds checksums passed by the checksum process to the result line
+	private void addChecksums(Map<String, String> options) {
+		DigestAlgorithm[] algorithms = options.containsKey("algorithms") ? parseAlgorithms(options
+				.get("algorithms"))
+				: new DigestAlgorithm[] { DigestAlgorithm.CRC32 };
+		result_fields.append(",\"checksums\":{");
+		for (int i = 0; i < algorithms.length; i++) {
+			if (i > 0) {
+				result_fields.append(',');
+			}
+			result_fields.append(quote(algorithms[i].getName())).append(':')
+					.append(quote(String.valueOf(result[i])));
+		}
+		result_fields.append('}');
+	}
+
+	// IOEngine from the options
+	private static IOEngine getIOEngine(Map<String, String> options) {
+		return options.containsKey("mapped") ? IOEngine.MAPPED
+				: IOEngine.CHANNEL;
+	}
+
+	// interval between progress lines from the options
+	private static long getInterval(Map<String, String> options) {
+		return options.containsKey("interval") ? parseNumber(options,
+				"interval", 0) : DEFAULT_INTERVAL;
+	}
+
+	// parses a non negative number option
+	private static int parseNumber(Map<String, String> options,
+			String option, int default_value) {
+		if (!options.containsKey(option)) {
+			return default_value;
+		}
+		try {
+			int value = Integer.parseInt(options.get(option));
+			if (value >= 0) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid value for --" + option);
+	}
+
+	// parses a size in bytes, with an optional K, M or G suffix
+	private static long parseSize(String size) {
+		long part_size = parseBytes(size);
+		if (part_size > 0) {
+			return part_size;
+		}
+		throw new IllegalArgumentException("Invalid size of parts " + size);
+	}
+
+	/*
+	 * parses bytes with an optional K, M or G unit, -1 if invalid or too large
+	 * for a long
+	 */
+	private static long parseBytes(String bytes) {
+		if (bytes.isEmpty()) {
+			return -1;
+		}
+		String units = "KMG";
+		int unit = units.indexOf(Character.toUpperCase(bytes.charAt(bytes
+				.length() - 1))) + 1;
+		try {
+			long value = Long.parseLong(unit > 0 ? bytes.substring(0,
+					bytes.length() - 1) : bytes);
+			if (value >= 0 && value <= (Long.MAX_VALUE >> (10 * unit))) {
+				return value << (10 * unit);
+			}
+		} catch (NumberFormatException e) {
+			// reported by the caller
+		}
+		return -1;
+	}
+
+	// parses a comma separated list of algorithms
+	private static DigestAlgorithm[] parseAlgorithms(String names) {
+		String[] name_list = names.split(",");
+		DigestAlgorithm[] algorithms = new DigestAlgorithm[name_list.length];
+		for (int i = 0; i < name_list.length; i++) {
+			algorithms[i] = DigestAlgorithm.forName(name_list[i].trim());
+			if (algorithms[i] == null) {
+				throw new IllegalArgumentException("Unknown algorithm "
+						+ name_list[i]);
+			}
+		}
+		return algorithms;
+	}
+
+	// quotes a string for JSON
+	private static String quote(String str) {
+		StringBuilder quoted = new StringBuilder(str.length() + 2);
+		quoted.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c == '\n') {
+				quoted.append("\\n");
+			} else if (c < ' ') {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	// writes a JSON line, lines from different threads are not mixed
+	private synchronized void printLine(String line) {
+		out.println(line);
+		out.flush();
+	}
+
+	@Override
+	public void updateStatus(Status cur_status) {
+		last_status = cur_status;
+		printLine("{\"event\":\"progress\",\"command\":" + quote(command)
+				+ ",\"done\":" + cur_status.getDoneBytes() + ",\"total\":"
+				+ cur_status.getTotalBytes() + ",\"percent\":"
+				+ cur_status.getProgressValue() + ",\"part\":"
+				+ cur_status.getCurrentPart() + ",\"parts\":"
+				+ cur_status.getTotalParts() + ",\"rate_mbps\":"
+				+ Math.round(cur_status.getRate() * 10) / 10.0
+				+ ",\"elapsed_ms\":" + cur_status.getElapsedTime() / 1000000
+				+ ",\"remaining_ms\":" + cur_status.getRemainingTime()
+				/ 1000000 + "}");
+	}
+
+	@Override
+	public void startProcess() {
+		// process is started by run
+	}
+
+	@Override
+	public boolean stopProcess() {
+		if (process != null) {
+			process.forceStop();
+		}
+		return true;
+	}
+
+	@Override
+	public void completed(Object[] result) {
+		this.result = result;
+		completed = true;
+	}
+
+	@Override
+	public void showError(String errmsg) {
+		// keep the first error, it is the cause of others
+		if (error == null) {
+			error = errmsg;
+		}
+		printLine("{\"event\":\"error\",\"command\":" + quote(command)
+				+ ",\"message\":" + quote(errmsg) + "}");
+	}
+}
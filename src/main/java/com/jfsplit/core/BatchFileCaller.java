@@ -0,0 +1,84 @@
+/*
+ * BatchFileCaller.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+/**
+ * Receives status, errors and completion of the process of one file of a
+ * batch. Bytes done by the file are added to the <code>Progress</code> of the
+ * batch, so the batch passes one status for all its files.
+ */
+class BatchFileCaller implements ProcessCaller {
+
+	// Progress of the batch
+	private Progress progress;
+	// bytes of the file already added to the batch progress
+	private long done_bytes;
+	private long skipped_bytes;
+	// first error of the file, null if none
+	private volatile String error;
+	// true when the process of the file is completed
+	private volatile boolean completed;
+
+	BatchFileCaller(Progress progress) {
+		this.progress = progress;
+	}
+
+	// first error of the file, null if none
+	String getError() {
+		return error;
+	}
+
+	// true if the process of the file is completed
+	boolean isCompleted() {
+		return completed;
+	}
+
+	@Override
+	public void updateStatus(Status cur_status) {
+		// only the reporter of the file calls this, one call at a time
+		progress.addSkippedBytes(cur_status.getSkippedBytes() - skipped_bytes);
+		progress.addDoneBytes(cur_status.getDoneBytes() - done_bytes);
+		skipped_bytes = cur_status.getSkippedBytes();
+		done_bytes = cur_status.getDoneBytes();
+	}
+
+	@Override
+	public void startProcess() {
+		// started by the batch
+	}
+
+	@Override
+	public boolean stopProcess() {
+		return true;
+	}
+
+	@Override
+	public void completed(Object[] result) {
+		completed = true;
+	}
+
+	@Override
+	public void showError(String errmsg) {
+		if (error == null) {
+			error = errmsg;
+		}
+	}
+}
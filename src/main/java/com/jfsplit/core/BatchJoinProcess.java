@@ -0,0 +1,356 @@
+/*
+ * BatchJoinProcess.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The <code>BatchJoinProcess</code> class joins many split sets, found by a
+ * <code>SplitSetScanner</code>, as jobs of a <code>JobScheduler</code> so that
+ * a limited number of sets are joined at a time. Sets with a manifest are
+ * joined from it. Progress of all sets is passed as one status, and the
+ * result of each set is passed as a <code>BatchResult</code> of its joined
+ * file when the batch is completed, in the order of the sets.
+ */
+public class BatchJoinProcess implements FileProcess {
+
+	// ProcessCaller which invoked the batch
+	private ProcessCaller process_caller;
+	// sets to be joined
+	private SplitSet[] split_sets;
+	// folder for joined files, null for the folder of each set
+	private File dest_folder;
+
+	// number of sets joined at a time
+	private int max_jobs;
+	// options for each join process
+	private int thread_nos;
+	private boolean verify;
+	private boolean resume;
+	private boolean consume_parts;
+	private IOEngine io_engine;
+
+	// Progress of all sets, passed as status by a ProgressReporter
+	private Progress progress;
+	// Interval between status updates in milli seconds
+	private long status_interval;
+	// number of sets completed or failed, for current file in status
+	private int finished_sets;
+	// result of each set
+	private BatchResult[] results;
+	// jobs joining the sets
+	private List<JobHandle> job_handles;
+
+	/*
+	 * For stopping a process while execution. If true then the operation is
+	 * stopped
+	 */
+	private volatile boolean force_stop;
+
+	/**
+	 * Creates a batch join process
+	 * 
+	 * @param process_caller
+	 *            <code>ProcessCaller</code> which invoked this process
+	 * @param split_sets
+	 *            Complete split sets to be joined
+	 * @param dest_folder
+	 *            Folder for joined files, null to join each set in the
+	 *            folder of its split files
+	 */
+	public BatchJoinProcess(ProcessCaller process_caller,
+			List<SplitSet> split_sets, File dest_folder) {
+		this.process_caller = process_caller;
+		this.split_sets = split_sets.toArray(new SplitSet[split_sets.size()]);
+		this.dest_folder = dest_folder;
+
+		max_jobs = JobScheduler.DEFAULT_MAX_JOBS;
+		thread_nos = 1;
+		io_engine = IOEngine.CHANNEL;
+		progress = new Progress("Joining file");
+		status_interval = ProgressReporter.DEFAULT_INTERVAL;
+		job_handles = new ArrayList<JobHandle>();
+
+		force_stop = false;
+	}
+
+	/**
+	 * Sets number of sets joined at a time
+	 * 
+	 * @param max_jobs
+	 *            Number of sets, default is
+	 *            <code>JobScheduler.DEFAULT_MAX_JOBS</code>
+	 */
+	public void setMaxJobs(int max_jobs) {
+		this.max_jobs = Math.max(1, max_jobs);
+	}
+
+	/**
+	 * Sets number of threads used for joining each set
+	 * 
+	 * @param thread_nos
+	 *            Number of threads
+	 * @see FileJoinProcess#setThreadNos(int)
+	 */
+	public void setThreadNos(int thread_nos) {
+		this.thread_nos = Math.max(1, thread_nos);
+	}
+
+	/**
+	 * Sets whether the split files are verified with the checksums of their
+	 * manifest or checksum file. Sets without checksums fail if true.
+	 * 
+	 * @param verify
+	 *            true to verify
+	 */
+	public void setVerify(boolean verify) {
+		this.verify = verify;
+	}
+
+	/**
+	 * Sets whether interrupted joining of each set is resumed
+	 * 
+	 * @param resume
+	 *            true to resume
+	 * @see FileJoinProcess#setResume(boolean)
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * Sets whether split files of each set are consumed
+	 * 
+	 * @param consume_parts
+	 *            true to consume split files
+	 * @see FileJoinProcess#setConsumeParts(boolean)
+	 */
+	public void setConsumeParts(boolean consume_parts) {
+		this.consume_parts = consume_parts;
+	}
+
+	/**
+	 * Sets interval between status updates
+	 * 
+	 * @param status_interval
+	 *            Interval in milli seconds
+	 */
+	public void setStatusInterval(long status_interval) {
+		this.status_interval = status_interval;
+	}
+
+	/**
+	 * Sets IOEngine used for joining each set
+	 * 
+	 * @param io_engine
+	 *            <code>IOEngine</code>
+	 */
+	public void setIOEngine(IOEngine io_engine) {
+		this.io_engine = io_engine;
+	}
+
+	/**
+	 * Joins all sets, returns when all are finished
+	 * 
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the sets
+	 */
+	public void joinSets() throws InterruptedException {
+		JobScheduler scheduler = new JobScheduler(max_jobs);
+		try {
+			synchronized (this) {
+				for (int i = 0; i < split_sets.length; i++) {
+					if (force_stop) {
+						return;
+					}
+					job_handles.add(scheduler.submit(new SetJoinProcess(i)));
+				}
+			}
+			for (JobHandle handle : job_handles) {
+				handle.await();
+			}
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	// size of the file joined from a set
+	private static long getJoinedSize(SplitSet split_set) {
+		if (split_set.getManifest() != null) {
+			return split_set.getManifest().getFileSize();
+		}
+		long size = 0;
+		for (File part_file : split_set.getPartFiles()) {
+			size += part_file.length();
+		}
+		return size;
+	}
+
+	// creates process joining a set, which passes its status to the caller
+	private FileJoinProcess createJoinProcess(SplitSet split_set,
+			ProcessCaller caller) throws IOException {
+		File dest_file = split_set.getJoinedFile(dest_folder);
+		SplitManifest manifest = split_set.getManifest();
+		FileJoinProcess join_process;
+		if (manifest != null) {
+			join_process = new FileJoinProcess(caller, manifest,
+					split_set.getFolder(), dest_file);
+		} else {
+			join_process = new FileJoinProcess(caller,
+					split_set.getPartFiles(), dest_file);
+		}
+
+		if (verify && manifest != null) {
+			join_process.setChecksumSidecar(manifest.toChecksumSidecar());
+		} else if (verify) {
+			File sidecar_file = ChecksumSidecar.getSidecarFile(
+					split_set.getFolder(), split_set.getBaseName());
+			if (!sidecar_file.exists()) {
+				throw new IOException("Checksum file "
+						+ sidecar_file.getName() + " not found");
+			}
+			join_process
+					.setChecksumSidecar(ChecksumSidecar.read(sidecar_file));
+		}
+		join_process.setThreadNos(thread_nos);
+		join_process.setIOEngine(io_engine);
+		join_process.setStatusInterval(status_interval);
+		join_process.setResume(resume);
+		join_process.setConsumeParts(consume_parts);
+		return join_process;
+	}
+
+	// records the result of a set
+	private synchronized void addResult(int index, BatchResult result) {
+		results[index] = result;
+		finished_sets++;
+		progress.setCurrentPart(Math.min(split_sets.length, finished_sets + 1));
+	}
+
+	@Override
+	public void run() {
+		long total_size = 0;
+		for (SplitSet split_set : split_sets) {
+			total_size += getJoinedSize(split_set);
+		}
+		results = new BatchResult[split_sets.length];
+		finished_sets = 0;
+
+		// status is passed by the reporter, not by the joining threads
+		progress.start(total_size, split_sets.length);
+		ProgressReporter reporter = new ProgressReporter(progress,
+				process_caller, status_interval);
+		reporter.start();
+		try {
+			joinSets();
+		} catch (InterruptedException e) {
+			force_stop = true;
+		} finally {
+			reporter.stop();
+		}
+		if (!force_stop) {
+			// pass the final status and result of each set
+			reporter.report();
+			process_caller.completed(new Object[] { results });
+		}
+	}
+
+	@Override
+	public void updateFileStatus(long file_curpos) {
+		// status of each set is passed to its BatchFileCaller
+	}
+
+	@Override
+	public void forceStop() {
+		force_stop = true;
+		synchronized (this) {
+			for (JobHandle handle : job_handles) {
+				handle.cancel();
+			}
+		}
+	}
+
+	/*
+	 * Joins a set as a job of the scheduler
+	 */
+	private class SetJoinProcess implements FileProcess {
+
+		// index of the set
+		private int index;
+		// process joining the set, null until started
+		private FileProcess join_process;
+		// true when the job is stopped
+		private boolean stopped;
+
+		SetJoinProcess(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			SplitSet split_set = split_sets[index];
+			File dest_file = split_set.getJoinedFile(dest_folder);
+			long start_time = System.nanoTime();
+
+			BatchFileCaller caller = new BatchFileCaller(progress);
+			String error = null;
+			try {
+				FileJoinProcess process = createJoinProcess(split_set, caller);
+				synchronized (this) {
+					if (stopped) {
+						return;
+					}
+					join_process = process;
+				}
+				process.run();
+				if (force_stop) {
+					return;
+				}
+				if (caller.getError() != null) {
+					error = caller.getError();
+				} else if (!caller.isCompleted()) {
+					error = "Joining of " + dest_file.getName()
+							+ " is not completed";
+				}
+			} catch (IOException e) {
+				error = "Error during joining.\n" + e.getMessage();
+			}
+			addResult(index, new BatchResult(dest_file, error,
+					getJoinedSize(split_set), System.nanoTime() - start_time));
+		}
+
+		@Override
+		public void updateFileStatus(long file_curpos) {
+			// status is passed by the join process
+		}
+
+		@Override
+		public synchronized void forceStop() {
+			stopped = true;
+			if (join_process != null) {
+				join_process.forceStop();
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * BatchResult.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+
+/**
+ * Result of one file of a batch process, passed to the
+ * <code>ProcessCaller</code> when the batch is completed.
+ */
+public class BatchResult {
+
+	// file processed
+	private File file;
+	// error message, null if completed
+	private String error;
+	// bytes of the file
+	private long bytes;
+	// time taken in nano seconds
+	private long elapsed_time;
+
+	/**
+	 * Creates a result
+	 * 
+	 * @param file
+	 *            File processed
+	 * @param error
+	 *            Error message, null if completed
+	 * @param bytes
+	 *            Bytes of the file
+	 * @param elapsed_time
+	 *            Time taken in nano seconds
+	 */
+	public BatchResult(File file, String error, long bytes, long elapsed_time) {
+		this.file = file;
+		this.error = error;
+		this.bytes = bytes;
+		this.elapsed_time = elapsed_time;
+	}
+
+	/**
+	 * File processed
+	 * 
+	 * @return <code>File</code>
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Checks whether the file is processed without errors
+	 * 
+	 * @return true if completed
+	 */
+	public boolean isCompleted() {
+		return error == null;
+	}
+
+	/**
+	 * Error message of the file
+	 * 
+	 * @return Error as <code>String</code>, null if completed
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * Bytes of the file
+	 * 
+	 * @return Bytes as <code>long</code>
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Time taken for the file
+	 * 
+	 * @return Time in nano seconds
+	 */
+	public long getElapsedTime() {
+		return elapsed_time;
+	}
+}
@@ -0,0 +1,447 @@
+/*
+ * BatchSplitProcess.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>BatchSplitProcess</code> class splits many files with the same
+ * part size (or number of parts). Source files are grouped by the device
+ * (<code>FileStore</code>) they are on. Files on a device are split one after
+ * another, so their reads do not compete for the same disk, and devices are
+ * split in parallel as jobs of a <code>JobScheduler</code>. Progress of all
+ * files is passed as one status, and the result of each file is passed as a
+ * <code>BatchResult</code> when the batch is completed, in the order of the
+ * source files.
+ */
+public class BatchSplitProcess implements FileProcess {
+
+	// ProcessCaller which invoked the batch
+	private ProcessCaller process_caller;
+	// files to be split
+	private File[] source_files;
+	// folder for split files, null for the folder of each source file
+	private File dest_folder;
+	// size of each split file, 0 if split by number of parts
+	private long part_size;
+	// number of split files, used if part size is 0
+	private int part_nos;
+
+	// maximum number of devices split in parallel, 0 for all
+	private int max_devices;
+	// options for each split process
+	private int thread_nos;
+	private DigestAlgorithm[] checksum_algorithms;
+	private boolean write_manifest;
+	private boolean resume;
+	private IOEngine io_engine;
+
+	// Progress of all files, passed as status by a ProgressReporter
+	private Progress progress;
+	// Interval between status updates in milli seconds
+	private long status_interval;
+	// number of files completed or failed, for current file in status
+	private int finished_files;
+	// result of each source file
+	private BatchResult[] results;
+	// jobs splitting the devices
+	private List<JobHandle> job_handles;
+
+	/*
+	 * For stopping a process while execution. If true then the operation is
+	 * stopped
+	 */
+	private volatile boolean force_stop;
+
+	/**
+	 * Creates a batch split process
+	 * 
+	 * @param process_caller
+	 *            <code>ProcessCaller</code> which invoked this process
+	 * @param source_files
+	 *            Files to be split
+	 * @param dest_folder
+	 *            Folder for split files, null to create split files in the
+	 *            folder of each source file
+	 * @param part_size
+	 *            Size of each split file, 0 to split each file by number of
+	 *            parts
+	 * @param part_nos
+	 *            Number of split files of each file, used if part size is 0
+	 */
+	public BatchSplitProcess(ProcessCaller process_caller,
+			File[] source_files, File dest_folder, long part_size,
+			int part_nos) {
+		this.process_caller = process_caller;
+		this.source_files = source_files.clone();
+		this.dest_folder = dest_folder;
+		this.part_size = part_size;
+		this.part_nos = part_nos;
+
+		max_devices = 0;
+		thread_nos = 1;
+		io_engine = IOEngine.CHANNEL;
+		progress = new Progress("Splitting file");
+		status_interval = ProgressReporter.DEFAULT_INTERVAL;
+		job_handles = new ArrayList<JobHandle>();
+
+		force_stop = false;
+	}
+
+	/**
+	 * Finds files to be split in a folder, in the order of their names.
+	 * Split files and files created by splitting (checksums, manifest and
+	 * journal) are not included.
+	 * 
+	 * @param folder
+	 *            Folder of the files
+	 * @param glob
+	 *            Pattern of file names like <code>*.csv</code>, null for all
+	 *            files
+	 * @return Files found
+	 * @throws IOException
+	 *             If the folder cannot be read
+	 */
+	public static File[] findSourceFiles(File folder, String glob)
+			throws IOException {
+		List<File> files = new ArrayList<File>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(
+				folder.toPath(), (glob == null) ? "*" : glob);
+		try {
+			for (Path path : stream) {
+				String name = path.getFileName().toString().toLowerCase();
+				if (Files.isRegularFile(path)
+						&& !name.matches(".*\\.(" + SPLIT_FILE_EXT
+								+ "\\w*|[\\d]{3})")) {
+					files.add(path.toFile());
+				}
+			}
+		} finally {
+			stream.close();
+		}
+		File[] found = files.toArray(new File[files.size()]);
+		Arrays.sort(found);
+		return found;
+	}
+
+	/**
+	 * Sets maximum number of devices split in parallel, 0 (default) for all
+	 * devices of the source files. Files on a device are always split one
+	 * after another.
+	 * 
+	 * @param max_devices
+	 *            Maximum number of devices
+	 */
+	public void setMaxDevices(int max_devices) {
+		this.max_devices = Math.max(0, max_devices);
+	}
+
+	/**
+	 * Sets number of threads used for splitting each file
+	 * 
+	 * @param thread_nos
+	 *            Number of threads
+	 * @see FileSplitProcess#setThreadNos(int)
+	 */
+	public void setThreadNos(int thread_nos) {
+		this.thread_nos = Math.max(1, thread_nos);
+	}
+
+	/**
+	 * Sets algorithms of checksums written with the split files of each file
+	 * 
+	 * @param checksum_algorithms
+	 *            Algorithms, null for no checksums
+	 * @see FileSplitProcess#setChecksumAlgorithms(DigestAlgorithm[])
+	 */
+	public void setChecksumAlgorithms(DigestAlgorithm[] checksum_algorithms) {
+		this.checksum_algorithms = checksum_algorithms;
+	}
+
+	/**
+	 * Sets whether a manifest is written for each file
+	 * 
+	 * @param write_manifest
+	 *            true to write manifests
+	 * @see FileSplitProcess#setWriteManifest(boolean)
+	 */
+	public void setWriteManifest(boolean write_manifest) {
+		this.write_manifest = write_manifest;
+	}
+
+	/**
+	 * Sets whether interrupted splitting of each file is resumed
+	 * 
+	 * @param resume
+	 *            true to resume
+	 * @see FileSplitProcess#setResume(boolean)
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * Sets interval between status updates
+	 * 
+	 * @param status_interval
+	 *            Interval in milli seconds
+	 */
+	public void setStatusInterval(long status_interval) {
+		this.status_interval = status_interval;
+	}
+
+	/**
+	 * Sets IOEngine used for splitting each file
+	 * 
+	 * @param io_engine
+	 *            <code>IOEngine</code>
+	 */
+	public void setIOEngine(IOEngine io_engine) {
+		this.io_engine = io_engine;
+	}
+
+	/**
+	 * Splits all files, returns when all devices are finished
+	 * 
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the devices
+	 */
+	public void splitFiles() throws InterruptedException {
+		// group files by device, keeping the order of files on a device
+		Map<Object, List<Integer>> devices = new LinkedHashMap<Object, List<Integer>>();
+		for (int i = 0; i < source_files.length; i++) {
+			Object device = getDevice(source_files[i]);
+			List<Integer> files = devices.get(device);
+			if (files == null) {
+				files = new ArrayList<Integer>();
+				devices.put(device, files);
+			}
+			files.add(i);
+		}
+
+		int device_nos = devices.size();
+		if (max_devices > 0) {
+			device_nos = Math.min(device_nos, max_devices);
+		}
+		JobScheduler scheduler = new JobScheduler(device_nos);
+		try {
+			synchronized (this) {
+				for (List<Integer> files : devices.values()) {
+					if (force_stop) {
+						return;
+					}
+					job_handles.add(scheduler.submit(new DeviceSplitProcess(
+							files)));
+				}
+			}
+			for (JobHandle handle : job_handles) {
+				handle.await();
+			}
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	/*
+	 * Device of a file, files of the same device have equal devices. Root of
+	 * the file is used if its FileStore cannot be found.
+	 */
+	private static Object getDevice(File file) {
+		try {
+			FileStore store = Files.getFileStore(file.toPath());
+			return store;
+		} catch (IOException e) {
+			return file.getAbsoluteFile().toPath().getRoot();
+		}
+	}
+
+	// splits a source file, returns its result
+	private BatchResult splitFile(int index, DeviceSplitProcess device) {
+		File source_file = source_files[index];
+		long file_size = source_file.length();
+		long start_time = System.nanoTime();
+
+		if (!source_file.isFile()) {
+			return new BatchResult(source_file, source_file.getName()
+					+ " not found", 0, 0);
+		}
+		if (file_size == 0) {
+			return new BatchResult(source_file, source_file.getName()
+					+ " is empty", 0, 0);
+		}
+
+		// a part larger than the file is of its size
+		long file_part_size = Math.min(part_size, file_size);
+		int file_part_nos = part_nos;
+		if (file_part_size > 0) {
+			file_part_nos = (int) ((file_size + file_part_size - 1) / file_part_size);
+		} else {
+			file_part_nos = (int) Math.min(file_part_nos, file_size);
+			file_part_size = (file_size + file_part_nos - 1) / file_part_nos;
+		}
+		File file_dest_folder = (dest_folder != null) ? dest_folder
+				: source_file.getAbsoluteFile().getParentFile();
+
+		BatchFileCaller caller = new BatchFileCaller(progress);
+		FileSplitProcess split_process = new FileSplitProcess(caller,
+				source_file, file_dest_folder, file_part_size, file_part_nos,
+				0, 0);
+		split_process.setThreadNos(thread_nos);
+		split_process.setChecksumAlgorithms(checksum_algorithms);
+		split_process.setWriteManifest(write_manifest);
+		split_process.setResume(resume);
+		split_process.setIOEngine(io_engine);
+		split_process.setStatusInterval(status_interval);
+
+		if (!device.startFile(split_process)) {
+			return null;
+		}
+		split_process.run();
+		device.finishFile();
+
+		if (force_stop) {
+			return null;
+		}
+		String error = null;
+		if (caller.getError() != null) {
+			error = source_file.getName() + " : " + caller.getError();
+		} else if (!caller.isCompleted()) {
+			error = "Splitting of " + source_file.getName()
+					+ " is not completed";
+		}
+		return new BatchResult(source_file, error, file_size,
+				System.nanoTime() - start_time);
+	}
+
+	// records the result of a file
+	private synchronized void addResult(int index, BatchResult result) {
+		results[index] = result;
+		finished_files++;
+		progress.setCurrentPart(Math.min(source_files.length,
+				finished_files + 1));
+	}
+
+	@Override
+	public void run() {
+		long total_size = 0;
+		for (File source_file : source_files) {
+			total_size += source_file.length();
+		}
+		results = new BatchResult[source_files.length];
+		finished_files = 0;
+
+		// status is passed by the reporter, not by the splitting threads
+		progress.start(total_size, source_files.length);
+		ProgressReporter reporter = new ProgressReporter(progress,
+				process_caller, status_interval);
+		reporter.start();
+		try {
+			splitFiles();
+		} catch (InterruptedException e) {
+			force_stop = true;
+		} finally {
+			reporter.stop();
+		}
+		if (!force_stop) {
+			// pass the final status and result of each file
+			reporter.report();
+			process_caller.completed(new Object[] { results });
+		}
+	}
+
+	@Override
+	public void updateFileStatus(long file_curpos) {
+		// status of each file is passed to its BatchFileCaller
+	}
+
+	@Override
+	public void forceStop() {
+		force_stop = true;
+		synchronized (this) {
+			for (JobHandle handle : job_handles) {
+				handle.cancel();
+			}
+		}
+	}
+
+	/*
+	 * Splits the files of a device one after another, as a job of the
+	 * scheduler
+	 */
+	private class DeviceSplitProcess implements FileProcess {
+
+		// indexes of the source files of this device
+		private List<Integer> files;
+		// process splitting current file, null if none
+		private FileProcess cur_process;
+		// true when the device is stopped
+		private boolean stopped;
+
+		DeviceSplitProcess(List<Integer> files) {
+			this.files = files;
+		}
+
+		// sets current process, false if already stopped
+		synchronized boolean startFile(FileProcess process) {
+			cur_process = process;
+			return !stopped;
+		}
+
+		synchronized void finishFile() {
+			cur_process = null;
+		}
+
+		@Override
+		public void run() {
+			for (int index : files) {
+				BatchResult result = splitFile(index, this);
+				if (result == null) {
+					// stopped
+					return;
+				}
+				addResult(index, result);
+			}
+		}
+
+		@Override
+		public void updateFileStatus(long file_curpos) {
+			// status is passed by the split processes
+		}
+
+		@Override
+		public synchronized void forceStop() {
+			stopped = true;
+			if (cur_process != null) {
+				cur_process.forceStop();
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * CRC32Combine.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+/**
+ * This class combines CRC checksums of two consecutive blocks of data into the
+ * checksum of the whole data, so that checksums of parts of a file can be
+ * calculated separately. It is the GF(2) matrix method used by
+ * <code>crc32_combine</code> of zlib.
+ * 
+ * <pre>
+ * long crc = CRC32Combine.combine(crc_first, crc_second, second_length);
+ * </pre>
+ */
+public class CRC32Combine {
+
+	/**
+	 * Reversed polynomial of CRC-32 (<code>java.util.zip.CRC32</code>)
+	 */
+	public static final long CRC32_POLY = 0xEDB88320L;
+
+	/**
+	 * Reversed polynomial of CRC-32C (<code>java.util.zip.CRC32C</code>)
+	 */
+	public static final long CRC32C_POLY = 0x82F63B78L;
+
+	// Number of bits in a CRC
+	private static final int GF2_DIM = 32;
+
+	private CRC32Combine() {
+	}
+
+	/**
+	 * Combines two CRC-32 checksums
+	 * 
+	 * @param crc1
+	 *            CRC-32 of the first block
+	 * @param crc2
+	 *            CRC-32 of the second block
+	 * @param len2
+	 *            Length of the second block in bytes
+	 * @return CRC-32 of the first block followed by the second block
+	 */
+	public static long combine(long crc1, long crc2, long len2) {
+		return combine(CRC32_POLY, crc1, crc2, len2);
+	}
+
+	/**
+	 * Combines two CRC checksums of a reflected 32 bit CRC with the specified
+	 * polynomial
+	 * 
+	 * @param poly
+	 *            Reversed polynomial of the CRC
+	 * @param crc1
+	 *            CRC of the first block
+	 * @param crc2
+	 *            CRC of the second block
+	 * @param len2
+	 *            Length of the second block in bytes
+	 * @return CRC of the first block followed by the second block
+	 */
+	public static long combine(long poly, long crc1, long crc2, long len2) {
+
+		// degenerate case (also disallow negative lengths)
+		if (len2 <= 0) {
+			return crc1;
+		}
+
+		// even-power-of-two zeros operator
+		long[] even = new long[GF2_DIM];
+		// odd-power-of-two zeros operator
+		long[] odd = new long[GF2_DIM];
+
+		// put operator for one zero bit in odd
+		odd[0] = poly;
+		long row = 1;
+		for (int n = 1; n < GF2_DIM; n++) {
+			odd[n] = row;
+			row <<= 1;
+		}
+
+		// put operator for two zero bits in even
+		gf2MatrixSquare(even, odd);
+		// put operator for four zero bits in odd
+		gf2MatrixSquare(odd, even);
+
+		/*
+		 * apply len2 zeros to crc1 (first square will put the operator for one
+		 * zero byte, eight zero bits, in even)
+		 */
+		do {
+			// apply zeros operator for this bit of len2
+			gf2MatrixSquare(even, odd);
+			if ((len2 & 1) != 0) {
+				crc1 = gf2MatrixTimes(even, crc1);
+			}
+			len2 >>= 1;
+
+			// if no more bits set, then done
+			if (len2 == 0) {
+				break;
+			}
+
+			// another iteration of the loop with odd and even swapped
+			gf2MatrixSquare(odd, even);
+			if ((len2 & 1) != 0) {
+				crc1 = gf2MatrixTimes(odd, crc1);
+			}
+			len2 >>= 1;
+		} while (len2 != 0);
+
+		return (crc1 ^ crc2) & 0xFFFFFFFFL;
+	}
+
+	// multiplies a vector by a GF(2) matrix
+	private static long gf2MatrixTimes(long[] mat, long vec) {
+		long sum = 0;
+		int i = 0;
+		while (vec != 0) {
+			if ((vec & 1) != 0) {
+				sum ^= mat[i];
+			}
+			vec >>>= 1;
+			i++;
+		}
+		return sum;
+	}
+
+	// square is the square of the GF(2) matrix mat
+	private static void gf2MatrixSquare(long[] square, long[] mat) {
+		for (int n = 0; n < GF2_DIM; n++) {
+			square[n] = gf2MatrixTimes(mat, mat[n]);
+		}
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * CheckpointJournal.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A checkpoint journal records progress of a long running process so that it
+ * can be resumed after it is stopped or the JVM dies. It is a small binary
+ * file with a header identifying the job and fixed size records appended as
+ * the job progresses. Each record has an index (a file or a part) and two
+ * long values whose meaning is defined by the process. Every record is forced
+ * to the storage device before returning, so a record read on restart
+ * describes work which is durable. A record partially written when the JVM
+ * died is discarded on opening.
+ */
+public class CheckpointJournal {
+
+	/**
+	 * Extension of a journal file, it is named as the file being written +
+	 * "." + JOURNAL_FILE_EXT
+	 */
+	public static final String JOURNAL_FILE_EXT = FileProcess.SPLIT_FILE_EXT
+			+ "j";
+
+	/**
+	 * Processes record a checkpoint after copying this much bytes of a file
+	 */
+	public static long CHECKPOINT_SIZE = 268435456; // 256 MB
+
+	// "JFSJ" at the beginning of a journal file
+	private static final int MAGIC = 0x4A46534A;
+	// version of the journal format
+	private static final int VERSION = 1;
+	// magic, version and identity
+	private static final int HEADER_SIZE = 16;
+	// index and two values
+	private static final int RECORD_SIZE = 20;
+	/*
+	 * Index of the record of the byte length and number of names, bytes of
+	 * the names are in the records of the indexes after it
+	 */
+	private static final int NAMES_INDEX = Integer.MIN_VALUE;
+	// bytes of names in a record
+	private static final int NAMES_RECORD_BYTES = 16;
+
+	// journal file
+	private File journal_file;
+	// identity of the job recorded in this journal
+	private long identity;
+	// channel to the journal file
+	private FileChannel channel;
+	// latest record of each index
+	private Map<Integer, long[]> records;
+
+	private CheckpointJournal(File journal_file, long identity) {
+		this.journal_file = journal_file;
+		this.identity = identity;
+		records = new HashMap<Integer, long[]>();
+	}
+
+	/**
+	 * Journal file for a file
+	 * 
+	 * @param file
+	 *            File written by the process
+	 * @return journal file in the same folder as <code>File</code>
+	 */
+	public static File getJournalFile(File file) {
+		return new File(file.getAbsoluteFile().getParentFile(), file.getName()
+				+ "." + JOURNAL_FILE_EXT);
+	}
+
+	/**
+	 * Calculates identity of a job from its description. Description should
+	 * contain everything which makes a job different from another (names and
+	 * sizes of files).
+	 * 
+	 * @param description
+	 *            Description of the job
+	 * @return identity as <code>long</code>
+	 */
+	public static long getIdentity(String description) {
+		XXHash64Digest digest = new XXHash64Digest();
+		digest.update(ByteBuffer.wrap(description
+				.getBytes(StandardCharsets.UTF_8)));
+		return digest.getHashValue();
+	}
+
+	/**
+	 * Checks whether a journal file is of a job, without changing it
+	 * 
+	 * @param journal_file
+	 *            Journal file
+	 * @param identity
+	 *            Identity of the job from <code>getIdentity</code>
+	 * @return true if the journal file exists and is of the job
+	 * @throws IOException
+	 */
+	public static boolean isJournalOf(File journal_file, long identity)
+			throws IOException {
+		if (journal_file.length() < HEADER_SIZE) {
+			return false;
+		}
+		FileChannel channel = FileChannel.open(journal_file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					return false;
+				}
+			}
+			header.flip();
+			return header.getInt() == MAGIC && header.getInt() == VERSION
+					&& header.getLong() == identity;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Opens a journal file. Records are read if the journal is of the same
+	 * job, else the journal is cleared and started for this job.
+	 * 
+	 * @param journal_file
+	 *            Journal file, created if not exists
+	 * @param identity
+	 *            Identity of the job from <code>getIdentity</code>
+	 * @return opened <code>CheckpointJournal</code>
+	 * @throws IOException
+	 */
+	public static CheckpointJournal open(File journal_file, long identity)
+			throws IOException {
+
+		CheckpointJournal journal = new CheckpointJournal(journal_file,
+				identity);
+		journal.channel = FileChannel.open(journal_file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (!journal.readRecords()) {
+				journal.clear();
+			}
+		} catch (IOException e) {
+			journal.close();
+			throw e;
+		}
+		return journal;
+	}
+
+	/*
+	 * Reads records if the journal is of this job, returns false if not.
+	 * Incomplete record at the end is removed.
+	 */
+	private boolean readRecords() throws IOException {
+
+		long size = channel.size();
+		if (size < HEADER_SIZE) {
+			return false;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(header, 0);
+		if (header.getInt() != MAGIC || header.getInt() != VERSION
+				|| header.getLong() != identity) {
+			return false;
+		}
+
+		long record_nos = (size - HEADER_SIZE) / RECORD_SIZE;
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		for (long i = 0; i < record_nos; i++) {
+			record.clear();
+			readFully(record, HEADER_SIZE + i * RECORD_SIZE);
+			records.put(record.getInt(), new long[] { record.getLong(),
+					record.getLong() });
+		}
+
+		// remove partially written record
+		channel.truncate(HEADER_SIZE + record_nos * RECORD_SIZE);
+		return true;
+	}
+
+	// reads the buffer fully from the position and flips it
+	private void readFully(ByteBuffer buffer, long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of journal");
+			}
+		}
+		buffer.flip();
+	}
+
+	// writes the buffer fully at the position
+	private void writeFully(ByteBuffer buffer, long position)
+			throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Removes all records, for starting the job again
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void clear() throws IOException {
+		records.clear();
+		channel.truncate(0);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(identity);
+		writeFully(header, 0);
+		channel.force(false);
+	}
+
+	/**
+	 * Appends a record and forces it to the storage device. Latest record of
+	 * an index replaces its earlier records.
+	 * 
+	 * @param index
+	 *            Index of the file or part
+	 * @param value1
+	 *            First value
+	 * @param value2
+	 *            Second value
+	 * @throws IOException
+	 */
+	public synchronized void checkpoint(int index, long value1, long value2)
+			throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		record.putInt(index).putLong(value1).putLong(value2);
+		writeFully(record, channel.size());
+		channel.force(false);
+		records.put(index, new long[] { value1, value2 });
+	}
+
+	/**
+	 * Records names of files of the job, for a job which deletes or renames
+	 * its files so that they are known when it is resumed. Names are appended
+	 * as records of indexes below those of files, the one of their length
+	 * last, and forced to the storage device once.
+	 * 
+	 * @param names
+	 *            Names of files (without line breaks)
+	 * @throws IOException
+	 */
+	public synchronized void putNames(String[] names) throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < names.length; i++) {
+			if (i > 0) {
+				text.append('\n');
+			}
+			text.append(names[i]);
+		}
+		byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+		int record_nos = (bytes.length + NAMES_RECORD_BYTES - 1)
+				/ NAMES_RECORD_BYTES;
+		ByteBuffer padded_bytes = ByteBuffer.allocate(record_nos
+				* NAMES_RECORD_BYTES);
+		padded_bytes.put(bytes);
+		padded_bytes.rewind();
+
+		ByteBuffer buffer = ByteBuffer.allocate((record_nos + 1)
+				* RECORD_SIZE);
+		for (int i = 0; i < record_nos; i++) {
+			long value1 = padded_bytes.getLong();
+			long value2 = padded_bytes.getLong();
+			buffer.putInt(NAMES_INDEX + 1 + i).putLong(value1).putLong(value2);
+			records.put(NAMES_INDEX + 1 + i, new long[] { value1, value2 });
+		}
+		// names are complete if their length is recorded
+		buffer.putInt(NAMES_INDEX).putLong(bytes.length).putLong(names.length);
+		writeFully(buffer, channel.size());
+		channel.force(false);
+		records.put(NAMES_INDEX, new long[] { bytes.length, names.length });
+	}
+
+	/**
+	 * Names of files recorded by <code>putNames</code>
+	 * 
+	 * @return names of files, or null if not recorded
+	 */
+	public synchronized String[] getNames() {
+		long[] length = records.get(NAMES_INDEX);
+		if (length == null) {
+			return null;
+		}
+		if (length[1] == 0) {
+			return new String[0];
+		}
+		int record_nos = (int) ((length[0] + NAMES_RECORD_BYTES - 1) / NAMES_RECORD_BYTES);
+		ByteBuffer bytes = ByteBuffer.allocate(record_nos
+				* NAMES_RECORD_BYTES);
+		for (int i = 0; i < record_nos; i++) {
+			long[] values = records.get(NAMES_INDEX + 1 + i);
+			if (values == null) {
+				return null;
+			}
+			bytes.putLong(values[0]).putLong(values[1]);
+		}
+		return new String(bytes.array(), 0, (int) length[0],
+				StandardCharsets.UTF_8).split("\n", -1);
+	}
+
+	/**
+	 * Latest record of an index
+	 * 
+	 * @param index
+	 *            Index of the file or part
+	 * @return two values of the record, or null if not recorded
+	 */
+	public synchronized long[] getCheckpoint(int index) {
+		long[] values = records.get(index);
+		return (values == null) ? null : values.clone();
+	}
+
+	/**
+	 * Closes the journal file, it is kept for resuming
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Closes and deletes the journal file after the job is completed
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void delete() throws IOException {
+		channel.close();
+		journal_file.delete();
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * ChecksumDigest.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * A <code>FileDigest</code> calculated with a
+ * <code>java.util.zip.Checksum</code> (CRC-32, CRC-32C, Adler-32).
+ */
+public class ChecksumDigest implements FileDigest {
+
+	// algorithm of this digest
+	private DigestAlgorithm algorithm;
+	// checksum being calculated
+	private Checksum checksum;
+
+	/**
+	 * Creates a digest which is calculated with the specified checksum
+	 * 
+	 * @param algorithm
+	 *            <code>DigestAlgorithm</code> of the checksum
+	 * @param checksum
+	 *            <code>Checksum</code> used for calculating
+	 */
+	public ChecksumDigest(DigestAlgorithm algorithm, Checksum checksum) {
+		this.algorithm = algorithm;
+		this.checksum = checksum;
+	}
+
+	@Override
+	public DigestAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	@Override
+	public void update(ByteBuffer buffer) {
+		checksum.update(buffer);
+	}
+
+	/**
+	 * Checksum value of the bytes updated so far
+	 * 
+	 * @return Checksum value as <code>long</code>
+	 */
+	public long getChecksumValue() {
+		return checksum.getValue();
+	}
+
+	@Override
+	public String getValue() {
+		return toHexString(checksum.getValue());
+	}
+
+	/**
+	 * Converts a checksum value to an upper case hexadecimal string, in the
+	 * same form the checksum was always shown (without leading zeros)
+	 * 
+	 * @param value
+	 *            Checksum value as <code>long</code>
+	 * @return Checksum value as <code>String</code>
+	 */
+	public static String toHexString(long value) {
+		return Long.toHexString(value).toUpperCase();
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * ChecksumSidecar.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A checksum sidecar file holds checksums of split files and of the whole
+ * file, written next to the split files. It is a text file with one line for
+ * each file, fields are separated by tabs:
+ * 
+ * <pre>
+ * # JFSplit checksums
+ * file.bin.jfs1	CRC-32=1C291CA3	SHA-256=9F86D0...
+ * file.bin	CRC-32=5E2A0B01
+ * </pre>
+ */
+public class ChecksumSidecar {
+
+	/**
+	 * Extension of a checksum sidecar file, it is named as source file name +
+	 * "." + SIDECAR_FILE_EXT
+	 */
+	public static final String SIDECAR_FILE_EXT = FileProcess.SPLIT_FILE_EXT
+			+ "sums";
+
+	// first line of a sidecar file
+	private static final String HEADER = "# JFSplit checksums";
+
+	// checksums of each file (by file name), in order of addition
+	private Map<String, Map<DigestAlgorithm, String>> checksums;
+
+	/**
+	 * Creates an empty sidecar
+	 */
+	public ChecksumSidecar() {
+		checksums = new LinkedHashMap<String, Map<DigestAlgorithm, String>>();
+	}
+
+	/**
+	 * Sidecar file of the split files of a source file
+	 * 
+	 * @param dest_folder
+	 *            Folder of the split files
+	 * @param source_name
+	 *            Name of the source file
+	 * @return Sidecar file as <code>File</code>
+	 */
+	public static File getSidecarFile(File dest_folder, String source_name) {
+		return new File(dest_folder, source_name + "." + SIDECAR_FILE_EXT);
+	}
+
+	/**
+	 * Adds checksums of a file, replacing checksums of the same algorithms
+	 * already present for it
+	 * 
+	 * @param file_name
+	 *            Name of the file (without folder)
+	 * @param digests
+	 *            Calculated <code>FileDigest</code>s of the file
+	 */
+	public void put(String file_name, FileDigest[] digests) {
+		for (FileDigest digest : digests) {
+			put(file_name, digest.getAlgorithm(), digest.getValue());
+		}
+	}
+
+	/**
+	 * Adds a checksum of a file, replacing checksum of the same algorithm
+	 * already present for it
+	 * 
+	 * @param file_name
+	 *            Name of the file (without folder)
+	 * @param algorithm
+	 *            <code>DigestAlgorithm</code> of the checksum
+	 * @param value
+	 *            Hexadecimal checksum value
+	 */
+	public void put(String file_name, DigestAlgorithm algorithm, String value) {
+		Map<DigestAlgorithm, String> file_checksums = checksums.get(file_name);
+		if (file_checksums == null) {
+			file_checksums = new LinkedHashMap<DigestAlgorithm, String>();
+			checksums.put(file_name, file_checksums);
+		}
+		file_checksums.put(algorithm, value.toUpperCase());
+	}
+
+	/**
+	 * Checksums of a file
+	 * 
+	 * @param file_name
+	 *            Name of the file (without folder)
+	 * @return Checksum values by algorithm, empty if the file is not present
+	 */
+	public Map<DigestAlgorithm, String> get(String file_name) {
+		Map<DigestAlgorithm, String> file_checksums = checksums.get(file_name);
+		if (file_checksums == null) {
+			return Collections.emptyMap();
+		}
+		return Collections.unmodifiableMap(file_checksums);
+	}
+
+	/**
+	 * Names of the files in this sidecar
+	 * 
+	 * @return File names in order of addition
+	 */
+	public Set<String> getFileNames() {
+		return Collections.unmodifiableSet(checksums.keySet());
+	}
+
+	/**
+	 * Checks whether the digests calculated for a file match its checksums in
+	 * this sidecar. Algorithms not present in the sidecar are not checked.
+	 * 
+	 * @param file_name
+	 *            Name of the file (without folder)
+	 * @param digests
+	 *            Calculated <code>FileDigest</code>s of the file
+	 * @return false if any of the checksums differs
+	 */
+	public boolean matches(String file_name, FileDigest[] digests) {
+		Map<DigestAlgorithm, String> file_checksums = get(file_name);
+		for (FileDigest digest : digests) {
+			String expected = file_checksums.get(digest.getAlgorithm());
+			if (expected != null && !expected.equals(digest.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes this sidecar to a file
+	 * 
+	 * @param sidecar_file
+	 *            Sidecar file as <code>File</code>
+	 * @throws IOException
+	 */
+	public void write(File sidecar_file) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(sidecar_file), StandardCharsets.UTF_8));
+		try {
+			writer.write(HEADER);
+			writer.newLine();
+			for (Map.Entry<String, Map<DigestAlgorithm, String>> entry : checksums
+					.entrySet()) {
+				writer.write(entry.getKey());
+				for (Map.Entry<DigestAlgorithm, String> checksum : entry
+						.getValue().entrySet()) {
+					writer.write('\t');
+					writer.write(checksum.getKey().getName());
+					writer.write('=');
+					writer.write(checksum.getValue());
+				}
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads a sidecar file. Checksums of unknown algorithms are ignored.
+	 * 
+	 * @param sidecar_file
+	 *            Sidecar file as <code>File</code>
+	 * @return <code>ChecksumSidecar</code> read from the file
+	 * @throws IOException
+	 *             if file can not be read or is not a sidecar file
+	 */
+	public static ChecksumSidecar read(File sidecar_file) throws IOException {
+		ChecksumSidecar sidecar = new ChecksumSidecar();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(sidecar_file), StandardCharsets.UTF_8));
+		try {
+			String line = reader.readLine();
+			if (line == null || !line.equals(HEADER)) {
+				throw new IOException(sidecar_file.getName()
+						+ " is not a checksum file");
+			}
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\t");
+				for (int i = 1; i < fields.length; i++) {
+					int separator = fields[i].indexOf('=');
+					DigestAlgorithm algorithm = (separator < 0) ? null
+							: DigestAlgorithm.forName(fields[i].substring(0,
+									separator));
+					if (algorithm != null) {
+						sidecar.put(fields[0], algorithm,
+								fields[i].substring(separator + 1));
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return sidecar;
+	}
+}
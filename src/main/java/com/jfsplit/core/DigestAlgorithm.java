@@ -0,0 +1,128 @@
+/*
+ * DigestAlgorithm.java
+ * An enum in JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * The <code>DigestAlgorithm</code> enum lists checksum and hash algorithms
+ * which can be calculated over a file. Any number of them can be calculated
+ * in one read of the file by <code>FileChecksumProcess</code>.
+ * 
+ * @see FileDigest
+ */
+public enum DigestAlgorithm {
+	CRC32("CRC-32"), CRC32C("CRC-32C"), ADLER32("Adler-32"), MD5("MD5"), SHA1(
+			"SHA-1"), SHA256("SHA-256"), XXHASH64("xxHash64");
+
+	// name shown to the user
+	private String name;
+
+	private DigestAlgorithm(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Name of the algorithm as shown to the user
+	 * 
+	 * @return Name as <code>String</code>
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Creates a new digest of this algorithm
+	 * 
+	 * @return <code>FileDigest</code> with no bytes updated
+	 */
+	public FileDigest newDigest() {
+		switch (this) {
+		case CRC32:
+			return new ChecksumDigest(this, new CRC32());
+		case CRC32C:
+			return new ChecksumDigest(this, new CRC32C());
+		case ADLER32:
+			return new ChecksumDigest(this, new Adler32());
+		case XXHASH64:
+			return new XXHash64Digest();
+		default:
+			return new MessageDigestDigest(this, name);
+		}
+	}
+
+	/**
+	 * Whether digests of consecutive ranges of a file can be combined into
+	 * digest of the whole, so that ranges can be calculated in parallel
+	 * 
+	 * @return true if digests can be combined with <code>CRC32Combine</code>
+	 */
+	public boolean isCombinable() {
+		return this == CRC32 || this == CRC32C;
+	}
+
+	/**
+	 * Combines digest values of two consecutive ranges of a file
+	 * 
+	 * @param value1
+	 *            Digest value of the first range
+	 * @param value2
+	 *            Digest value of the second range
+	 * @param len2
+	 *            Length of the second range in bytes
+	 * @return Digest value of both ranges
+	 * @see #isCombinable()
+	 */
+	public long combine(long value1, long value2, long len2) {
+		switch (this) {
+		case CRC32:
+			return CRC32Combine.combine(CRC32Combine.CRC32_POLY, value1,
+					value2, len2);
+		case CRC32C:
+			return CRC32Combine.combine(CRC32Combine.CRC32C_POLY, value1,
+					value2, len2);
+		default:
+			throw new UnsupportedOperationException(name
+					+ " values can not be combined");
+		}
+	}
+
+	/**
+	 * Finds an algorithm from its name or enum constant name (case is
+	 * ignored)
+	 * 
+	 * @param name
+	 *            Name of the algorithm, like "SHA-256" or "SHA256"
+	 * @return <code>DigestAlgorithm</code> or null if there is no such
+	 *         algorithm
+	 */
+	public static DigestAlgorithm forName(String name) {
+		for (DigestAlgorithm algorithm : values()) {
+			if (algorithm.name.equalsIgnoreCase(name)
+					|| algorithm.name().equalsIgnoreCase(name)) {
+				return algorithm;
+			}
+		}
+		return null;
+	}
+}
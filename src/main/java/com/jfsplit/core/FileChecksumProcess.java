@@ -22,41 +22,70 @@
 package com.jfsplit.core;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.zip.CRC32;
-import java.util.zip.CheckedInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * <code>FileChecksumProcess</code> class is an implementation of the
  * <code>FileProcess</code> interface which is used for the process of
- * calculating checksum of a file.
+ * calculating checksum of a file. Checksums are passed to
+ * <code>ProcessCaller.completed</code> as a <code>String</code> array of
+ * hexadecimal values in the order of algorithms, or null if the calculation
+ * failed after an error was shown.
  */
 public class FileChecksumProcess implements FileProcess {
 
+	/*
+	 * In parallel calculation file is not divided into ranges smaller than
+	 * this
+	 */
+	private static final long MIN_RANGE_SIZE = 16777216; // 16 MB
+
+	/*
+	 * Number of buffers shared by the threads when each algorithm is
+	 * calculated by its own thread
+	 */
+	private static final int BUFFER_RING_SIZE = 4;
+
 	// source file
 	private File source_file;
 
-	// Process startup time in nano seconds.
-	private long startup_time;
-	// Current position of the source file being processed.
-	private long srcfile_curpos;
 	// Size of source file.
 	private long srcfile_size;
-	// calculated checksum is stored in this long variable
-	private long checksum;
+	// Algorithms of the checksums calculated
+	private DigestAlgorithm[] algorithms;
+	/*
+	 * calculated checksums are stored in this array as hexadecimal strings in
+	 * the order of algorithms
+	 */
+	private String[] checksums;
+	// How the source file is read
+	private IOEngine io_engine;
+	// Number of threads used, 1 means file is read from start to end
+	private int thread_nos;
 
 	// ProcessCaller which invoked this process.
 	private ProcessCaller process_caller;
 
-	// For passing status of the process.
-	private Status status;
+	// Progress of the process, passed as status by a ProgressReporter
+	private Progress progress;
+	// Interval between status updates in milli seconds
+	private long status_interval;
 
 	/*
 	 * For stopping a process while execution. If true then the operation is
 	 * stopped
 	 */
-	private boolean force_stop;
+	private volatile boolean force_stop;
 
 	/**
 	 * Creates a process to calculate checksum
@@ -70,11 +99,64 @@ public class FileChecksumProcess implements FileProcess {
 		this.process_caller = process_caller;
 		this.source_file = source_file;
 
-		status = new Status();
+		progress = new Progress("Calculating Checksum");
+		status_interval = ProgressReporter.DEFAULT_INTERVAL;
+		io_engine = IOEngine.CHANNEL;
+		thread_nos = 1;
+		algorithms = new DigestAlgorithm[] { DigestAlgorithm.CRC32 };
 
 		force_stop = false;
 	}
 
+	/**
+	 * Sets how the source file is read, <code>IOEngine.CHANNEL</code> by
+	 * default
+	 * 
+	 * @param io_engine
+	 *            <code>IOEngine</code> used for reading
+	 */
+	public void setIOEngine(IOEngine io_engine) {
+		this.io_engine = io_engine;
+	}
+
+	/**
+	 * Sets the algorithms of checksums calculated, only CRC-32 by default. All
+	 * of them are calculated in one read of the source file.
+	 * 
+	 * @param algorithms
+	 *            <code>DigestAlgorithm</code>s of the checksums
+	 */
+	public void setAlgorithms(DigestAlgorithm[] algorithms) {
+		this.algorithms = algorithms.clone();
+	}
+
+	/**
+	 * Sets how often status is passed to the <code>ProcessCaller</code>,
+	 * <code>ProgressReporter.DEFAULT_INTERVAL</code> by default
+	 * 
+	 * @param status_interval
+	 *            Interval between status updates in milli seconds
+	 */
+	public void setStatusInterval(long status_interval) {
+		this.status_interval = status_interval;
+	}
+
+	/**
+	 * Sets number of threads used for calculating checksum. If more than one
+	 * and all algorithms are CRCs, checksums of disjoint ranges of the file are
+	 * calculated in parallel on a fork-join pool of this much threads and
+	 * combined with <code>CRC32Combine</code>. The result is same as
+	 * calculating it from start to end. Otherwise, if more than one algorithm,
+	 * each algorithm is calculated by its own thread from buffers shared by
+	 * all of them. Should be called before the process is started.
+	 * 
+	 * @param thread_nos
+	 *            Number of threads (1 for reading file from start to end)
+	 */
+	public void setThreadNos(int thread_nos) {
+		this.thread_nos = Math.max(1, thread_nos);
+	}
+
 	/**
 	 * Calculates checksum of the source file
 	 * 
@@ -82,81 +164,323 @@ public class FileChecksumProcess implements FileProcess {
 	 */
 	public void calculateCheksum() throws IOException {
 
-		srcfile_curpos = 0;
 		srcfile_size = source_file.length();
 
-		// CheckedInputStream to find CRC32 checksum
-		CheckedInputStream checked_istream = new CheckedInputStream(
-				new FileInputStream(source_file), new CRC32());
+		// source channel is shared, only positional reads are used
+		FileChannel src_channel = FileChannel.open(source_file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			if (thread_nos > 1 && isCombinable()) {
+				long[] values = calculateChecksumParallel(src_channel);
+				checksums = new String[values.length];
+				for (int i = 0; i < values.length; i++) {
+					checksums[i] = ChecksumDigest.toHexString(values[i]);
+				}
+				return;
+			}
 
-		byte[] buffer = new byte[1024];
-		int bytes_read;
-		while ((bytes_read = checked_istream.read(buffer)) >= 0) {
+			FileDigest[] digests = newDigests();
+			if (thread_nos > 1 && digests.length > 1) {
+				updateDigestsPerThread(src_channel, digests);
+			} else {
+				updateDigests(src_channel, 0, srcfile_size, digests);
+			}
 
-			// for stopping operation while execution
-			if (force_stop) {
-				break;
+			// get checksums
+			checksums = new String[digests.length];
+			for (int i = 0; i < digests.length; i++) {
+				checksums[i] = digests[i].getValue();
 			}
-			srcfile_curpos += bytes_read;
+		} finally {
+			src_channel.close();
+		}
+	}
+
+	// creates a digest for each algorithm
+	private FileDigest[] newDigests() {
+		FileDigest[] digests = new FileDigest[algorithms.length];
+		for (int i = 0; i < algorithms.length; i++) {
+			digests[i] = algorithms[i].newDigest();
+		}
+		return digests;
+	}
+
+	// whether all algorithms can be calculated over ranges and combined
+	private boolean isCombinable() {
+		for (DigestAlgorithm algorithm : algorithms) {
+			if (!algorithm.isCombinable()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Calculates CRCs of ranges of the source file in parallel and combines
+	 * them in order
+	 */
+	private long[] calculateChecksumParallel(FileChannel src_channel)
+			throws IOException {
+
+		// ranges are small enough to keep all threads busy
+		long range_size = Math.max(MIN_RANGE_SIZE, srcfile_size
+				/ (thread_nos * 4L));
+
+		ForkJoinPool pool = new ForkJoinPool(thread_nos);
+		try {
+			return pool.invoke(new RangeChecksumTask(src_channel, 0,
+					srcfile_size, range_size));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * Calculates CRCs of a range of the source file by dividing it into two
+	 * halves until it is smaller than range_size
+	 */
+	private class RangeChecksumTask extends RecursiveTask<long[]> {
+
+		private static final long serialVersionUID = 4360394553311622473L;
+
+		private FileChannel src_channel;
+		private long src_pos;
+		private long src_len;
+		private long range_size;
+
+		RangeChecksumTask(FileChannel src_channel, long src_pos, long src_len,
+				long range_size) {
+			this.src_channel = src_channel;
+			this.src_pos = src_pos;
+			this.src_len = src_len;
+			this.range_size = range_size;
+		}
+
+		@Override
+		protected long[] compute() {
+			long[] values = new long[algorithms.length];
+			if (src_len <= range_size) {
+				FileDigest[] digests = newDigests();
+				try {
+					updateDigests(src_channel, src_pos, src_len, digests);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				for (int i = 0; i < digests.length; i++) {
+					values[i] = ((ChecksumDigest) digests[i])
+							.getChecksumValue();
+				}
+				return values;
+			}
+
+			long first_len = src_len / 2;
+			RangeChecksumTask first = new RangeChecksumTask(src_channel,
+					src_pos, first_len, range_size);
+			RangeChecksumTask second = new RangeChecksumTask(src_channel,
+					src_pos + first_len, src_len - first_len, range_size);
+			first.fork();
+			long[] second_values = second.compute();
+			long[] first_values = first.join();
+			for (int i = 0; i < values.length; i++) {
+				values[i] = algorithms[i].combine(first_values[i],
+						second_values[i], src_len - first_len);
+			}
+			return values;
+		}
+	}
+
+	/*
+	 * Updates digests with a range of the source file. File is read with
+	 * positional reads into a large direct buffer or through mapped windows
+	 * as per io_engine.
+	 */
+	private void updateDigests(FileChannel src_channel, long src_pos,
+			long src_len, FileDigest[] digests) throws IOException {
+
+		// calculate source position up to which bytes are read
+		long filesize_upto_pos = src_pos + src_len;
+
+		if (io_engine == IOEngine.MAPPED) {
+			while (src_pos < filesize_upto_pos && !force_stop) {
+				int window_size = (int) Math.min(
+						FileOperations.MAP_WINDOW_SIZE, filesize_upto_pos
+								- src_pos);
+				MappedByteBuffer src_buffer = src_channel.map(
+						FileChannel.MapMode.READ_ONLY, src_pos, window_size);
+
+				// window is read chunk by chunk to monitor progress
+				int window_pos = 0;
+				while (window_pos < window_size && !force_stop) {
+					int chunk_size = Math.min(FileOperations.BUFFER_SIZE,
+							window_size - window_pos);
+					src_buffer.limit(window_pos + chunk_size);
+					for (FileDigest digest : digests) {
+						src_buffer.position(window_pos);
+						digest.update(src_buffer);
+					}
+
+					window_pos += chunk_size;
+					src_pos += chunk_size;
+					// update file status
+					progress.addDoneBytes(chunk_size);
+				}
+			}
+			return;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(FileOperations.BUFFER_SIZE);
+		while (src_pos < filesize_upto_pos && !force_stop) {
+			int bytes_read = readBuffer(src_channel, src_pos,
+					filesize_upto_pos, buffer);
+			for (FileDigest digest : digests) {
+				buffer.rewind();
+				digest.update(buffer);
+			}
+
+			src_pos += bytes_read;
 			// update file status
-			updateFileStatus(0);
+			progress.addDoneBytes(bytes_read);
+		}
+	}
+
+	/*
+	 * Updates each digest in its own thread. The source file is read into a
+	 * ring of buffers, each buffer is handed to all digest threads and reused
+	 * once all of them are done with it.
+	 */
+	private void updateDigestsPerThread(FileChannel src_channel,
+			final FileDigest[] digests) throws IOException {
+
+		ExecutorService[] digest_threads = new ExecutorService[digests.length];
+		for (int i = 0; i < digests.length; i++) {
+			digest_threads[i] = FileOperations.newWorkerPool(1,
+					"Checksum Thread " + digests[i].getAlgorithm().getName());
 		}
 
-		// get checksum
-		checksum = checked_istream.getChecksum().getValue();
+		ByteBuffer[] buffer_ring = new ByteBuffer[BUFFER_RING_SIZE];
+		Future<?>[][] pending = new Future<?>[BUFFER_RING_SIZE][];
+		try {
+			long src_pos = 0;
+			int slot = 0;
+			while (src_pos < srcfile_size && !force_stop) {
+
+				// wait until all digests are done with this buffer
+				waitFor(pending[slot]);
+
+				ByteBuffer buffer;
+				int bytes_read;
+				if (io_engine == IOEngine.MAPPED) {
+					bytes_read = (int) Math.min(FileOperations.BUFFER_SIZE,
+							srcfile_size - src_pos);
+					buffer = src_channel.map(FileChannel.MapMode.READ_ONLY,
+							src_pos, bytes_read);
+				} else {
+					if (buffer_ring[slot] == null) {
+						buffer_ring[slot] = ByteBuffer
+								.allocateDirect(FileOperations.BUFFER_SIZE);
+					}
+					buffer = buffer_ring[slot];
+					bytes_read = readBuffer(src_channel, src_pos,
+							srcfile_size, buffer);
+				}
+
+				// digest threads only read the buffer
+				pending[slot] = new Future<?>[digests.length];
+				for (int i = 0; i < digests.length; i++) {
+					final FileDigest digest = digests[i];
+					final ByteBuffer digest_buffer = buffer.asReadOnlyBuffer();
+					pending[slot][i] = digest_threads[i].submit(new Runnable() {
+						@Override
+						public void run() {
+							digest.update(digest_buffer);
+						}
+					});
+				}
+
+				src_pos += bytes_read;
+				// update file status
+				progress.addDoneBytes(bytes_read);
+
+				slot = (slot + 1) % BUFFER_RING_SIZE;
+			}
+
+			// wait for remaining buffers
+			for (int i = 0; i < BUFFER_RING_SIZE; i++) {
+				waitFor(pending[i]);
+			}
+		} finally {
+			for (ExecutorService digest_thread : digest_threads) {
+				digest_thread.shutdownNow();
+			}
+		}
+	}
+
+	// waits until the specified tasks are completed
+	private void waitFor(Future<?>[] tasks) throws IOException {
+		if (tasks == null) {
+			return;
+		}
+		for (Future<?> task : tasks) {
+			try {
+				task.get();
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Checksum calculation interrupted");
+			}
+		}
+	}
+
+	/*
+	 * Reads from position of the source channel into the buffer (without
+	 * going beyond filesize_upto_pos) and flips the buffer
+	 */
+	private int readBuffer(FileChannel src_channel, long src_pos,
+			long filesize_upto_pos, ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		if (filesize_upto_pos - src_pos < buffer.capacity()) {
+			buffer.limit((int) (filesize_upto_pos - src_pos));
+		}
+		int bytes_read = src_channel.read(buffer, src_pos);
+		if (bytes_read < 0) {
+			throw new IOException("Unexpected end of file");
+		}
+		buffer.flip();
+		return bytes_read;
 	}
 
 	@Override
 	public void run() {
-		// record starting time
-		startup_time = System.nanoTime();
+		// status is passed by the reporter, not by the reading threads
+		progress.start(source_file.length(), 0);
+		ProgressReporter reporter = new ProgressReporter(progress,
+				process_caller, status_interval);
+		reporter.start();
 		try {
 			// do operation
 			calculateCheksum();
 		} catch (IOException e) {
 			String errmsg = "Error during checksum operation";
 			process_caller.showError(errmsg);
+		} finally {
+			reporter.stop();
 		}
 		if (!force_stop) {
+			// pass the final status
+			reporter.report();
 			// inform ProcessCaller that operation is completed
-			// with the calculated checksum
-			process_caller.completed(new Long[] { checksum });
+			// with the calculated checksums (in order of algorithms)
+			process_caller.completed(checksums);
 		}
 	}
 
 	@Override
 	public void updateFileStatus(long file_curpos) {
-		// file_curpos is not needed in this method
-
-		// calculated time elapsed and remaining in nano seconds
-		long elapsed_time = System.nanoTime() - startup_time;
-		long time_for_byte = elapsed_time / srcfile_curpos;
-		long remaining_time = time_for_byte * (srcfile_size - srcfile_curpos);
-
-		// converting time elapsed in nano seconds to minutes : seconds
-		long elapsed_time_insecs = (long) (elapsed_time * 1E-9);
-		long elap_time_sec = elapsed_time_insecs % 60;
-		long elap_time_min = elapsed_time_insecs / 60;
-
-		// converting time remaining in nano seconds to minutes : seconds
-		long remaining_time_insecs = (long) (remaining_time * 1E-9);
-		long rem_time_sec = remaining_time_insecs % 60;
-		long rem_time_min = remaining_time_insecs / 60;
-
-		// calculating progress percentage
-		int progress_value = (int) (((double) srcfile_curpos / srcfile_size) * 100.0);
-
-		// set status
-		status.setProgressValue(progress_value);
-		status.setElapTimeStatus("Time Elapsed " + elap_time_min + " : "
-				+ elap_time_sec);
-		status.setRemTimeStatus("Estimated Time Remaining " + rem_time_min
-				+ " : " + rem_time_sec);
-		status.setFileStatus("Calculating Checksum");
-		status.setSizeStatus(srcfile_curpos + " / " + srcfile_size + " Bytes");
-
-		// pass status to ProcessCaller
-		process_caller.updateStatus(status);
+		// position of the source file processed
+		progress.setDoneBytes(file_curpos);
 	}
 
 	@Override
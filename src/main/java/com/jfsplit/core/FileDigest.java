@@ -0,0 +1,63 @@
+/*
+ * FileDigest.java
+ * An interface in JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The <code>FileDigest</code> interface specifies the methods of a checksum or
+ * hash calculated over the contents of a file. Digests are created by a
+ * <code>DigestAlgorithm</code>.
+ * 
+ * <pre>
+ * FileDigest digest = DigestAlgorithm.SHA256.newDigest();
+ * digest.update(buffer);
+ * String value = digest.getValue();
+ * </pre>
+ * 
+ * @see DigestAlgorithm
+ */
+public interface FileDigest {
+
+	/**
+	 * Algorithm of this digest
+	 * 
+	 * @return <code>DigestAlgorithm</code> of this digest
+	 */
+	public DigestAlgorithm getAlgorithm();
+
+	/**
+	 * Updates the digest with the remaining bytes of the buffer. After return
+	 * position of the buffer is its limit.
+	 * 
+	 * @param buffer
+	 *            <code>ByteBuffer</code> containing bytes of the file
+	 */
+	public void update(ByteBuffer buffer);
+
+	/**
+	 * Digest value of the bytes updated so far as an upper case hexadecimal
+	 * string
+	 * 
+	 * @return Digest value as <code>String</code>
+	 */
+	public String getValue();
+}
@@ -22,6 +22,25 @@ package com.jfsplit.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <code>FileJoinProcess</code> class is an implementation of the
@@ -30,20 +49,42 @@ import java.io.IOException;
  */
 public class FileJoinProcess implements FileProcess {
 
+	// Bytes at the end of a resumed copy compared with the source file
+	private static final int TAIL_CHECK_SIZE = 65536;
+
 	// File array of source files
 	private File[] source_files;
 	// destination file
 	private File dest_file;
 
+	// Size of each source file
+	private long[] srcfile_sizes;
+
 	// Which file is being processed.
 	private int cur_file;
+	// Number of threads used for joining, 1 means files are joined one by one
+	private int thread_nos;
+	// True if source files are appended to the first one and deleted
+	private boolean consume_parts;
+	// True if source files are copied by joinFilesByParts
+	private boolean range_copy;
+	// Number of source files completed in joinFilesByParts
+	private AtomicInteger completed_files;
+	// True if sizes of source files are taken from a split manifest
+	private boolean from_manifest;
+	// Expected checksums of source files, null if not verified
+	private ChecksumSidecar checksum_sidecar;
+	// Set when a source file fails, other threads stop copying
+	private AtomicBoolean abort_workers;
+	// True if an interrupted joining is resumed
+	private boolean resume;
+	// Journal of source files copied, null if not resumable
+	private CheckpointJournal journal;
+	// Bytes of source files copied before resuming
+	private long resumed_size;
 
-	// Process startup time in nano seconds.
-	private long startup_time;
 	// Size of target file.
 	private long desfile_size;
-	// Current position of the target file being processed.
-	private long desfile_curpos;
 	// Total size of source files that completed processing
 	private long completed_src_files_size;
 
@@ -56,14 +97,16 @@ public class FileJoinProcess implements FileProcess {
 	 */
 	private FileOperations file_operations;
 
-	// For passing status of the process.
-	private Status status;
+	// Progress of the process, passed as status by a ProgressReporter
+	private Progress progress;
+	// Interval between status updates in milli seconds
+	private long status_interval;
 
 	/*
 	 * For stopping a process while execution. If true then the operation is
 	 * stopped
 	 */
-	private boolean force_stop;
+	private volatile boolean force_stop;
 
 	/**
 	 * Creates a file join process
@@ -82,7 +125,12 @@ public class FileJoinProcess implements FileProcess {
 		this.dest_file = dest_file;
 
 		file_operations = new FileOperations(this);
-		status = new Status();
+		progress = new Progress("Copying file");
+		status_interval = ProgressReporter.DEFAULT_INTERVAL;
+
+		thread_nos = 1;
+		completed_files = new AtomicInteger();
+		abort_workers = new AtomicBoolean();
 
 		force_stop = false;
 
@@ -90,22 +138,147 @@ public class FileJoinProcess implements FileProcess {
 		findDestFileSize();
 	}
 
-	// For calculating the target size from the source files
+	/**
+	 * Creates a file join process for joining the split files listed in a
+	 * split manifest. Names and sizes of the source files are taken from the
+	 * manifest instead of probing the file system, and the source files are
+	 * always copied to their offsets in the destination file.
+	 * 
+	 * @param process_caller
+	 *            <code>ProcessCaller</code> which invoked this process
+	 * @param manifest
+	 *            <code>SplitManifest</code> of the split files
+	 * @param source_folder
+	 *            Folder containing the split files
+	 * @param dest_file
+	 *            destination file as <code>File</code>
+	 */
+	public FileJoinProcess(ProcessCaller process_caller,
+			SplitManifest manifest, File source_folder, File dest_file) {
+		this.process_caller = process_caller;
+		this.source_files = manifest.getPartFiles(source_folder);
+		this.dest_file = dest_file;
+
+		file_operations = new FileOperations(this);
+		progress = new Progress("Copying file");
+		status_interval = ProgressReporter.DEFAULT_INTERVAL;
+
+		thread_nos = 1;
+		completed_files = new AtomicInteger();
+		abort_workers = new AtomicBoolean();
+
+		force_stop = false;
+
+		// sizes are known from the manifest
+		from_manifest = true;
+		desfile_size = manifest.getFileSize();
+		srcfile_sizes = new long[source_files.length];
+		for (int i = 0; i < source_files.length; i++) {
+			srcfile_sizes[i] = manifest.getPartLength(i);
+		}
+	}
+
+	/*
+	 * For calculating the target size from the source files, missing source
+	 * files are reported when joining
+	 */
 	private void findDestFileSize() {
 		desfile_size = 0;
+		srcfile_sizes = new long[source_files.length];
 		for (int i = 0; i < source_files.length; i++) {
 			// add length of each souce file
-			if (source_files[i].exists()) {
-				desfile_size += source_files[i].length();
-			} else {
-				String errmsg = "Error during joining.\n"
-						+ source_files[i].getName() + " not found";
-				process_caller.showError(errmsg);
-				break;
-			}
+			srcfile_sizes[i] = source_files[i].length();
+			desfile_size += srcfile_sizes[i];
 		}
 	}
 
+	/**
+	 * Sets number of threads used for joining. If more than one, the
+	 * destination file is created with its final size and source files are
+	 * copied to their offsets in it in parallel by a pool of this much
+	 * threads. Should be called before the process is started.
+	 * 
+	 * @param thread_nos
+	 *            Number of threads (1 for joining files one by one)
+	 */
+	public void setThreadNos(int thread_nos) {
+		this.thread_nos = Math.max(1, thread_nos);
+	}
+
+	/**
+	 * Sets how often status is passed to the <code>ProcessCaller</code>,
+	 * <code>ProgressReporter.DEFAULT_INTERVAL</code> by default
+	 * 
+	 * @param status_interval
+	 *            Interval between status updates in milli seconds
+	 */
+	public void setStatusInterval(long status_interval) {
+		this.status_interval = status_interval;
+	}
+
+	/**
+	 * Sets how file contents are copied while joining
+	 * 
+	 * @param io_engine
+	 *            <code>IOEngine</code> used for copying
+	 */
+	public void setIOEngine(IOEngine io_engine) {
+		file_operations.setIOEngine(io_engine);
+	}
+
+	/**
+	 * Sets expected checksums of the source files. Each source file is
+	 * verified while it is copied, from the same bytes, against checksums of
+	 * its name in the sidecar. Joining is stopped as soon as a source file
+	 * does not match. Source files not in the sidecar are not verified.
+	 * 
+	 * @param checksum_sidecar
+	 *            <code>ChecksumSidecar</code> with expected checksums, or null
+	 *            for no verification
+	 */
+	public void setChecksumSidecar(ChecksumSidecar checksum_sidecar) {
+		this.checksum_sidecar = checksum_sidecar;
+	}
+
+	/**
+	 * Sets whether joining is resumable. A journal (destination file name +
+	 * "." + <code>CheckpointJournal.JOURNAL_FILE_EXT</code>) records how much
+	 * of each source file is durably copied, a checkpoint in every
+	 * <code>CheckpointJournal.CHECKPOINT_SIZE</code> bytes. If the joining
+	 * is stopped, the next run with the same source files continues from the
+	 * checkpoints after comparing the end of the copied bytes with the source
+	 * files. Journal is deleted when joining is completed. Source files which
+	 * are verified are recorded only after they are completed and verified.
+	 * 
+	 * @param resume
+	 *            true for resumable joining
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * Sets whether source files are consumed. If true the first source file
+	 * is renamed to the destination file and the other source files are
+	 * appended to it one by one, each deleted as soon as it is appended and
+	 * forced to the disk. Bytes of the first source file are not copied and
+	 * at most one source file of extra disk space is needed. Source files
+	 * should be on the same disk as the destination file. A journal of the
+	 * destination file keeps the paths of all source files and records every
+	 * appended source file, so an interrupted joining always continues from
+	 * the last one on the next run, even if it is started from a source file
+	 * left or the first one is renamed already. While the journal exists the
+	 * destination file is not replaced by joining without consuming. Number
+	 * of threads is not used, and <code>IOEngine.MAPPED</code> is not used as
+	 * source files are deleted and the destination file is truncated.
+	 * 
+	 * @param consume_parts
+	 *            true for consuming source files
+	 */
+	public void setConsumeParts(boolean consume_parts) {
+		this.consume_parts = consume_parts;
+	}
+
 	/**
 	 * Performs the file joining operation
 	 * 
@@ -113,14 +286,46 @@ public class FileJoinProcess implements FileProcess {
 	 */
 	public void joinFiles() throws IOException {
 
-		desfile_curpos = 0;
 		completed_src_files_size = 0;
 
-		// if specified target file exits replace it with new joined file
-		if (dest_file.exists()) {
+		// source files are renamed or appended to the destination file
+		if (consume_parts) {
+			range_copy = true;
+			joinFilesByConsuming();
+			return;
+		}
+
+		// destination file of an interrupted consuming joining is kept
+		if (CheckpointJournal.isJournalOf(
+				CheckpointJournal.getJournalFile(dest_file),
+				CheckpointJournal.getIdentity(getConsumeDescription()))) {
+			String errmsg = "Error during joining.\n"
+					+ dest_file.getName()
+					+ " is being joined by consuming split files, joining cannot be continued without consuming";
+			process_caller.showError(errmsg);
+			return;
+		}
+
+		/*
+		 * if specified target file exits replace it with new joined file,
+		 * when resuming it is checked with the journal
+		 */
+		resumed_size = 0;
+		if (dest_file.exists() && !resume) {
 			dest_file.delete();
 		}
 
+		/*
+		 * source files are copied through buffers if verified, and to their
+		 * offsets if sizes are from a manifest
+		 */
+		range_copy = (thread_nos > 1 || checksum_sidecar != null
+				|| from_manifest || resume);
+		if (range_copy) {
+			joinFilesByParts();
+			return;
+		}
+
 		// copy and append each source file to target file
 		for (int i = 0; i < source_files.length; i++) {
 
@@ -148,18 +353,675 @@ public class FileJoinProcess implements FileProcess {
 		}
 	}
 
+	/*
+	 * Joins the source files using a pool of thread_nos threads. Destination
+	 * file is preallocated to desfile_size and each source file is copied to
+	 * its offset (total size of the source files before it).
+	 */
+	private void joinFilesByParts() throws IOException {
+
+		/*
+		 * check whether source files exist, with the sizes in the manifest so
+		 * that nothing is written for a split set which can not be joined
+		 */
+		if (!checkSourceFiles(0)) {
+			return;
+		}
+
+		// bytes of each source file already copied
+		long[] resume_bytes = new long[source_files.length];
+		if (resume) {
+			journal = CheckpointJournal.open(
+					CheckpointJournal.getJournalFile(dest_file),
+					CheckpointJournal.getIdentity(getJobDescription()));
+			if (dest_file.length() == desfile_size) {
+				findResumeBytes(resume_bytes);
+			} else {
+				// destination file is not of this joining
+				journal.clear();
+			}
+		}
+
+		// destination file is deleted unless it is joined or can be resumed
+		boolean joined = false;
+		try {
+			joinFileParts(resume_bytes);
+			joined = !force_stop && !abort_workers.get();
+		} finally {
+			if (!joined) {
+				discardDestination();
+			}
+			// journal is kept for resuming
+			if (journal != null) {
+				if (joined) {
+					// journal is not needed after joining is completed
+					journal.delete();
+				} else {
+					journal.close();
+				}
+				journal = null;
+			}
+		}
+	}
+
+	/*
+	 * Copies the source files from the bytes copied before resuming to the
+	 * destination file preallocated to desfile_size
+	 */
+	private void joinFileParts(long[] resume_bytes) throws IOException {
+
+		// create destination file with the size of joined file
+		RandomAccessFile dest_raf = new RandomAccessFile(dest_file, "rw");
+		try {
+			dest_raf.setLength(desfile_size);
+		} finally {
+			dest_raf.close();
+		}
+
+		completed_files.set(0);
+		abort_workers.set(false);
+		cur_file = 1;
+		for (int i = 0; i < source_files.length; i++) {
+			resumed_size += resume_bytes[i];
+			if (resume_bytes[i] == srcfile_sizes[i] && resume_bytes[i] > 0) {
+				completed_files.incrementAndGet();
+			}
+		}
+		// bytes copied before resuming are counted as processed
+		progress.addSkippedBytes(resumed_size);
+		progress.setDoneBytes(resumed_size);
+
+		ExecutorService executor = FileOperations.newWorkerPool(thread_nos,
+				"File Joining Worker Thread");
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			long dest_offset = 0;
+			for (int i = 0; i < source_files.length; i++) {
+				final int file_index = i;
+				final long file_offset = dest_offset;
+				final long file_pos = resume_bytes[i];
+				dest_offset += srcfile_sizes[i];
+				// skip source files completed before resuming
+				if (file_pos == srcfile_sizes[i] && file_pos > 0) {
+					continue;
+				}
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						joinFile(file_index, file_offset, file_pos);
+						return null;
+					}
+				}));
+			}
+
+			/*
+			 * wait for all files, first failure stops others and is thrown
+			 * after they are stopped
+			 */
+			IOException failure = null;
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					abortWorkers();
+					if (failure == null && e.getCause() instanceof IOException) {
+						failure = (IOException) e.getCause();
+					} else if (failure == null) {
+						failure = new IOException(e.getCause());
+					}
+				} catch (InterruptedException e) {
+					abortWorkers();
+					Thread.currentThread().interrupt();
+					throw new IOException("Joining interrupted");
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Deletes the destination file of a failed or stopped joining. It has the
+	 * size of the joined file with parts not copied, so it is kept only if
+	 * the journal records copied bytes for resuming.
+	 */
+	private void discardDestination() throws IOException {
+		if (journal != null) {
+			for (int i = 0; i < source_files.length; i++) {
+				long[] checkpoint = journal.getCheckpoint(i);
+				if (checkpoint != null && checkpoint[1] > 0) {
+					return;
+				}
+			}
+			journal.delete();
+			journal = null;
+		}
+		dest_file.delete();
+	}
+
+	/*
+	 * Checks whether source files from the specified index exist, with the
+	 * size in the manifest if joined from a manifest. Reports the first
+	 * missing source file.
+	 */
+	private boolean checkSourceFiles(int first) {
+		for (int i = first; i < source_files.length; i++) {
+			if (!source_files[i].exists()) {
+				String errmsg = "Error during joining.\n"
+						+ source_files[i].getName() + " not found";
+				process_caller.showError(errmsg);
+				return false;
+			}
+			// source file should have the size in the manifest
+			if (from_manifest && source_files[i].length() != srcfile_sizes[i]) {
+				String errmsg = "Error during joining.\n"
+						+ source_files[i].getName()
+						+ " does not match the manifest";
+				process_caller.showError(errmsg);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Joins by renaming the first source file to the destination file and
+	 * appending the others to it. Each source file is deleted after it is
+	 * appended, forced to the disk and recorded in the journal with the
+	 * length of the destination file after it. The first one is recorded
+	 * before renaming, so that an interrupted rename is done again. Journal
+	 * is of the destination file and keeps the paths of all source files, so
+	 * the joining is continued from any of the source files left.
+	 */
+	private void joinFilesByConsuming() throws IOException {
+		/*
+		 * source files cannot be deleted and destination file cannot be
+		 * truncated while mapped windows of them are kept
+		 */
+		file_operations.setIOEngine(IOEngine.CHANNEL);
+		journal = CheckpointJournal.open(
+				CheckpointJournal.getJournalFile(dest_file),
+				CheckpointJournal.getIdentity(getConsumeDescription()));
+		try {
+			// source files of an interrupted joining
+			String[] source_paths = journal.getNames();
+			if (source_paths != null && !resumeSourceFiles(source_paths)) {
+				return;
+			}
+			if (source_files.length == 0) {
+				String errmsg = "Error during joining.\nNo split files of "
+						+ dest_file.getName() + " found";
+				process_caller.showError(errmsg);
+				return;
+			}
+
+			// source files appended before resuming
+			int consumed_nos = 0;
+			long dest_length = 0;
+			long[] checkpoint;
+			while (consumed_nos < source_files.length
+					&& (checkpoint = journal.getCheckpoint(consumed_nos)) != null) {
+				dest_length = checkpoint[0];
+				consumed_nos++;
+			}
+			if (consumed_nos == 1 && !dest_file.exists()) {
+				// first source file is not renamed yet
+				consumed_nos = 0;
+				dest_length = 0;
+			}
+			if (consumed_nos > 0 && dest_file.length() < dest_length) {
+				String errmsg = "Error during joining.\n" + dest_file.getName()
+						+ " is changed, joining cannot be continued";
+				process_caller.showError(errmsg);
+				return;
+			}
+			if (!checkSourceFiles(consumed_nos)) {
+				return;
+			}
+
+			// joined size is the appended bytes and the remaining files
+			desfile_size = dest_length;
+			for (int i = consumed_nos; i < source_files.length; i++) {
+				desfile_size += srcfile_sizes[i];
+			}
+			progress.setTotalBytes(desfile_size);
+			completed_files.set(consumed_nos);
+			resumed_size = dest_length;
+
+			if (consumed_nos == 0) {
+				journal.clear();
+				source_paths = new String[source_files.length];
+				for (int i = 0; i < source_files.length; i++) {
+					source_paths[i] = source_files[i].getAbsolutePath();
+				}
+				journal.putNames(source_paths);
+				// first source file is verified by reading it before renaming
+				if (!verifySourceFile(0)) {
+					return;
+				}
+				if (dest_file.exists()) {
+					dest_file.delete();
+				}
+				dest_length = srcfile_sizes[0];
+				journal.checkpoint(0, dest_length, 0);
+				try {
+					Files.move(source_files[0].toPath(), dest_file.toPath(),
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					journal.clear();
+					String errmsg = "Error during joining.\n"
+							+ source_files[0].getName()
+							+ " is not on the disk of " + dest_file.getName();
+					process_caller.showError(errmsg);
+					return;
+				}
+				consumed_nos = 1;
+				completed_files.set(1);
+				// renamed bytes are not copied, verified bytes are read
+				if (checksum_sidecar == null) {
+					resumed_size = dest_length;
+				}
+			} else {
+				// appended source files not deleted before stopping
+				for (int i = 1; i < consumed_nos; i++) {
+					if (source_files[i].exists()) {
+						source_files[i].delete();
+					}
+				}
+			}
+			progress.addSkippedBytes(resumed_size);
+			progress.setDoneBytes(resumed_size);
+
+			appendSourceFiles(consumed_nos, dest_length);
+		} finally {
+			if (journal != null) {
+				/*
+				 * journal is kept for resuming if the first source file is
+				 * consumed, else it would stop joining without consuming
+				 */
+				if (journal.getCheckpoint(0) == null) {
+					journal.delete();
+				} else {
+					journal.close();
+				}
+				journal = null;
+			}
+		}
+	}
+
+	/*
+	 * Appends source files from the specified index to the destination file
+	 * of the specified length, deleting each after it is recorded
+	 */
+	private void appendSourceFiles(int first, long dest_length)
+			throws IOException {
+		FileChannel des_channel = FileChannel.open(dest_file.toPath(),
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			// bytes after the last recorded source file are appended again
+			des_channel.truncate(dest_length);
+
+			for (int i = first; i < source_files.length; i++) {
+				cur_file = i + 1;
+				FileDigest[] digests = newDigests(i);
+				FileChannel src_channel = FileChannel.open(
+						source_files[i].toPath(), StandardOpenOption.READ);
+				try {
+					if (digests != null) {
+						file_operations.copyRange(src_channel, 0,
+								srcfile_sizes[i], des_channel, dest_length,
+								digests);
+					} else {
+						file_operations.copyRange(src_channel, 0,
+								srcfile_sizes[i], des_channel, dest_length);
+					}
+				} finally {
+					src_channel.close();
+				}
+				if (force_stop) {
+					return;
+				}
+
+				// a source file which does not match is not appended
+				if (digests != null
+						&& !checksum_sidecar.matches(
+								source_files[i].getName(), digests)) {
+					des_channel.truncate(dest_length);
+					des_channel.force(false);
+					String errmsg = "Error during joining.\n"
+							+ source_files[i].getName()
+							+ " does not match its checksum";
+					process_caller.showError(errmsg);
+					return;
+				}
+
+				// source file is deleted only after appended bytes are durable
+				dest_length += srcfile_sizes[i];
+				des_channel.force(false);
+				journal.checkpoint(i, dest_length, 0);
+				source_files[i].delete();
+
+				completed_files.incrementAndGet();
+				updateFileStatus(file_operations.getTransferredBytes());
+			}
+		} finally {
+			des_channel.close();
+		}
+
+		// journal is not needed after joining is completed
+		journal.delete();
+		journal = null;
+	}
+
+	/*
+	 * Verifies a source file by reading it, reports if it does not match its
+	 * checksum. True if it matches or is not verified.
+	 */
+	private boolean verifySourceFile(int i) throws IOException {
+		FileDigest[] digests = newDigests(i);
+		if (digests == null) {
+			return true;
+		}
+		FileChannel src_channel = FileChannel.open(source_files[i].toPath(),
+				StandardOpenOption.READ);
+		try {
+			file_operations.copyRange(src_channel, 0, srcfile_sizes[i], null,
+					0, digests);
+		} finally {
+			src_channel.close();
+		}
+		if (force_stop) {
+			return false;
+		}
+		if (!checksum_sidecar.matches(source_files[i].getName(), digests)) {
+			String errmsg = "Error during joining.\n"
+					+ source_files[i].getName()
+					+ " does not match its checksum";
+			process_caller.showError(errmsg);
+			return false;
+		}
+		return true;
+	}
+
+	// digests of the checksums of a source file to be verified, else null
+	private FileDigest[] newDigests(int i) {
+		if (checksum_sidecar == null) {
+			return null;
+		}
+		Map<DigestAlgorithm, String> expected = checksum_sidecar
+				.get(source_files[i].getName());
+		FileDigest[] digests = new FileDigest[expected.size()];
+		int digest_nos = 0;
+		for (DigestAlgorithm algorithm : expected.keySet()) {
+			digests[digest_nos++] = algorithm.newDigest();
+		}
+		return digests;
+	}
+
+	/*
+	 * Takes the source files of an interrupted joining from the paths in its
+	 * journal, source files of this joining should be among them as some may
+	 * be consumed already
+	 */
+	private boolean resumeSourceFiles(String[] source_paths) {
+		Set<String> paths = new HashSet<String>(Arrays.asList(source_paths));
+		boolean same_files = (source_paths.length == source_files.length);
+		for (int i = 0; i < source_files.length; i++) {
+			String path = source_files[i].getAbsolutePath();
+			if (!paths.contains(path)) {
+				String errmsg = "Error during joining.\n"
+						+ dest_file.getName()
+						+ " is being joined from other split files, joining cannot be continued";
+				process_caller.showError(errmsg);
+				return false;
+			}
+			same_files = same_files && path.equals(source_paths[i]);
+		}
+		if (same_files) {
+			return true;
+		}
+
+		// sizes of the source files left, consumed ones are not used
+		source_files = new File[source_paths.length];
+		srcfile_sizes = new long[source_paths.length];
+		for (int i = 0; i < source_paths.length; i++) {
+			source_files[i] = new File(source_paths[i]);
+			srcfile_sizes[i] = source_files[i].length();
+		}
+		from_manifest = false;
+		return true;
+	}
+
+	/*
+	 * Describes consuming joining for identifying its journal, by the name of
+	 * the destination file as source files are lost when they are consumed
+	 */
+	private String getConsumeDescription() {
+		return "consume " + dest_file.getName();
+	}
+
+	/*
+	 * Describes this joining for identifying its journal, by the size and
+	 * name of each source file
+	 */
+	private String getJobDescription() {
+		StringBuilder description = new StringBuilder("join ");
+		description.append(desfile_size);
+		for (int i = 0; i < source_files.length; i++) {
+			description.append('\n').append(source_files[i].getName())
+					.append('\t').append(srcfile_sizes[i]);
+		}
+		return description.toString();
+	}
+
+	/*
+	 * Finds bytes of each source file already copied from the checkpoints in
+	 * journal. A checkpoint is used only if the end of the copied bytes in
+	 * destination file is same as in the source file.
+	 */
+	private void findResumeBytes(long[] resume_bytes) throws IOException {
+		FileChannel des_channel = FileChannel.open(dest_file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			long dest_offset = 0;
+			for (int i = 0; i < source_files.length; i++) {
+				long[] checkpoint = journal.getCheckpoint(i);
+				if (checkpoint != null && checkpoint[0] == dest_offset
+						&& checkpoint[1] <= srcfile_sizes[i]) {
+					long copied_bytes = checkpoint[1];
+					// checksum of a partly copied file cannot be resumed
+					if (checksum_sidecar != null
+							&& copied_bytes < srcfile_sizes[i]) {
+						copied_bytes = 0;
+					}
+					if (copied_bytes > 0
+							&& !checkTail(i, copied_bytes, des_channel,
+									dest_offset)) {
+						copied_bytes = 0;
+					}
+					resume_bytes[i] = copied_bytes;
+				}
+				dest_offset += srcfile_sizes[i];
+			}
+		} finally {
+			des_channel.close();
+		}
+	}
+
+	/*
+	 * Compares the last bytes copied from a source file with the bytes at
+	 * the same position in destination file
+	 */
+	private boolean checkTail(int i, long copied_bytes,
+			FileChannel des_channel, long dest_offset) throws IOException {
+		int tail_size = (int) Math.min(TAIL_CHECK_SIZE, copied_bytes);
+		FileChannel src_channel = FileChannel.open(source_files[i].toPath(),
+				StandardOpenOption.READ);
+		try {
+			return FileOperations.sameBytes(src_channel, copied_bytes
+					- tail_size, des_channel, dest_offset + copied_bytes
+					- tail_size, tail_size);
+		} finally {
+			src_channel.close();
+		}
+	}
+
+	// stops all threads copying source files
+	private void abortWorkers() {
+		abort_workers.set(true);
+		file_operations.forceStopOperation();
+	}
+
+	/*
+	 * Aborts the other threads and reports the source file with the
+	 * specified index, only the first reported file is shown.
+	 */
+	private void reportSourceFile(int i, String problem) {
+		if (!abort_workers.getAndSet(true)) {
+			abortWorkers();
+			String errmsg = "Error during joining.\n"
+					+ source_files[i].getName() + problem;
+			process_caller.showError(errmsg);
+		}
+	}
+
+	/*
+	 * Copies the source file with the specified index to its offset,
+	 * starting from src_start (bytes copied before resuming)
+	 */
+	private void joinFile(int i, long dest_offset, long src_start)
+			throws IOException {
+
+		// for stopping operation while execution
+		if (force_stop || abort_workers.get()) {
+			return;
+		}
+
+		// checksums of the source file which should be verified
+		FileDigest[] digests = newDigests(i);
+
+		FileChannel src_channel = null;
+		FileChannel des_channel = null;
+		try {
+			try {
+				src_channel = FileChannel.open(source_files[i].toPath(),
+						StandardOpenOption.READ);
+			} catch (NoSuchFileException e) {
+				reportSourceFile(i, " not found");
+				return;
+			}
+			// source file may be changed after it is checked
+			if (from_manifest && src_channel.size() != srcfile_sizes[i]) {
+				reportSourceFile(i, " does not match the manifest");
+				return;
+			}
+			// each thread writes through its own channel
+			des_channel = FileChannel.open(dest_file.toPath(),
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			long src_pos = src_start;
+			while (src_pos < srcfile_sizes[i]) {
+
+				// for stopping operation while execution
+				if (force_stop || abort_workers.get()) {
+					break;
+				}
+
+				/*
+				 * copied in steps of CHECKPOINT_SIZE for recording checkpoints,
+				 * verified files are recorded only after verification
+				 */
+				long copy_len = srcfile_sizes[i] - src_pos;
+				if (journal != null && digests == null) {
+					copy_len = Math.min(CheckpointJournal.CHECKPOINT_SIZE,
+							copy_len);
+				}
+				try {
+					if (digests != null) {
+						file_operations.copyRange(src_channel, src_pos,
+								copy_len, des_channel, dest_offset + src_pos,
+								digests);
+					} else {
+						file_operations.copyRange(src_channel, src_pos,
+								copy_len, des_channel, dest_offset + src_pos);
+					}
+				} catch (IOException e) {
+					// source file is cut short after it is checked
+					if (src_channel.size() < srcfile_sizes[i]) {
+						reportSourceFile(i, " does not match the manifest");
+						return;
+					}
+					throw e;
+				}
+				src_pos += copy_len;
+
+				// record the checkpoint after copied bytes are durable
+				if (journal != null && digests == null && !force_stop
+						&& !abort_workers.get()) {
+					des_channel.force(false);
+					journal.checkpoint(i, dest_offset, src_pos);
+				}
+			}
+
+			if (journal != null && digests != null && !force_stop
+					&& !abort_workers.get()) {
+				des_channel.force(false);
+			}
+		} finally {
+			if (src_channel != null) {
+				src_channel.close();
+			}
+			if (des_channel != null) {
+				des_channel.close();
+			}
+		}
+
+		if (force_stop || abort_workers.get()) {
+			return;
+		}
+
+		// verify the copied source file
+		if (digests != null
+				&& !checksum_sidecar.matches(source_files[i].getName(), digests)) {
+			// file should be copied again after it is replaced
+			if (journal != null) {
+				journal.checkpoint(i, dest_offset, 0);
+			}
+			reportSourceFile(i, " does not match its checksum");
+			return;
+		}
+
+		// record the verified file
+		if (journal != null && digests != null) {
+			journal.checkpoint(i, dest_offset, srcfile_sizes[i]);
+		}
+
+		// report completion of this file
+		completed_files.incrementAndGet();
+		updateFileStatus(file_operations.getTransferredBytes());
+	}
+
 	@Override
 	public void run() {
-		// record starting time
-		startup_time = System.nanoTime();
+		// status is passed by the reporter, not by the copying threads
+		progress.start(desfile_size, source_files.length);
+		ProgressReporter reporter = new ProgressReporter(progress,
+				process_caller, status_interval);
+		reporter.start();
 		try {
 			// do operation
 			joinFiles();
 		} catch (IOException e) {
 			String errmsg = "Error during joining operation";
 			process_caller.showError(errmsg);
+		} finally {
+			reporter.stop();
 		}
 		if (!force_stop) {
+			// pass the final status
+			reporter.report();
 			// inform ProcessCaller that operation is completed
 			process_caller.completed(null);
 		}
@@ -167,44 +1029,23 @@ public class FileJoinProcess implements FileProcess {
 
 	@Override
 	public void updateFileStatus(long file_curpos) {
-
-		/*
-		 * calculate target file position from source file position passed from
-		 * copy operation and completed_src_files_size (how much completed
-		 * early)
-		 */
-		desfile_curpos = completed_src_files_size + file_curpos;
-
-		// calculated time elapsed and remaining in nano seconds
-		long elapsed_time = System.nanoTime() - startup_time;
-		long time_for_byte = elapsed_time / desfile_curpos;
-		long remaining_time = time_for_byte * (desfile_size - desfile_curpos);
-
-		// converting time elapsed in nano seconds to minutes : seconds
-		long elapsed_time_insecs = (long) (elapsed_time * 1E-9);
-		long elap_time_sec = elapsed_time_insecs % 60;
-		long elap_time_min = elapsed_time_insecs / 60;
-
-		// converting time remaining in nano seconds to minutes : seconds
-		long remaining_time_insecs = (long) (remaining_time * 1E-9);
-		long rem_time_sec = remaining_time_insecs % 60;
-		long rem_time_min = remaining_time_insecs / 60;
-
-		// calculating progress percentage
-		int progress_value = (int) (((double) desfile_curpos / desfile_size) * 100.0);
-
-		// set status
-		status.setProgressValue(progress_value);
-		status.setElapTimeStatus("Time Elapsed " + elap_time_min + " : "
-				+ elap_time_sec);
-		status.setRemTimeStatus("Estimated Time Remaining " + rem_time_min
-				+ " : " + rem_time_sec);
-		status.setFileStatus("Copying file " + cur_file + " of "
-				+ source_files.length);
-		status.setSizeStatus(desfile_curpos + " / " + desfile_size + " Bytes");
-
-		// pass status to ProcessCaller
-		process_caller.updateStatus(status);
+		if (range_copy) {
+			/*
+			 * in joining by parts position passed is the total bytes copied
+			 * by all threads
+			 */
+			progress.setDoneBytes(resumed_size + file_curpos);
+			progress.setCurrentPart(Math.min(source_files.length,
+					completed_files.get() + 1));
+		} else {
+			/*
+			 * calculate target file position from source file position passed
+			 * from copy operation and completed_src_files_size (how much
+			 * completed early)
+			 */
+			progress.setDoneBytes(completed_src_files_size + file_curpos);
+			progress.setCurrentPart(cur_file);
+		}
 	}
 
 	@Override
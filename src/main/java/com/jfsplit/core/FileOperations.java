@@ -25,8 +25,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.DecimalFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class defines some common file operations so that it can be used in
@@ -41,10 +48,26 @@ public class FileOperations {
 	 */
 	public static long CHUNK_SIZE = 1048576; // 1 MB
 
+	/**
+	 * Size of the direct buffers used when file contents are read into memory
+	 * (for calculating checksums while reading or copying)
+	 */
+	public static int BUFFER_SIZE = 4194304; // 4 MB
+
+	/**
+	 * In <code>IOEngine.MAPPED</code> files are mapped in windows of this much
+	 * size, so files larger than a single mapping (2 GB) can be processed
+	 */
+	public static long MAP_WINDOW_SIZE = 67108864; // 64 MB
+
 	// FileProcess which uses this
 	private FileProcess file_process;
 	// For stopping an operation
-	private boolean force_stop_operation;
+	private volatile boolean force_stop_operation;
+	// Total bytes copied by range copy operations (shared between threads)
+	private AtomicLong transferred_bytes;
+	// How file contents are copied
+	private IOEngine io_engine;
 
 	/**
 	 * Creates a FileOperation object for performing some operations
@@ -55,6 +78,28 @@ public class FileOperations {
 	public FileOperations(FileProcess file_process) {
 		this.file_process = file_process;
 		force_stop_operation = false;
+		transferred_bytes = new AtomicLong();
+		io_engine = IOEngine.CHANNEL;
+	}
+
+	/**
+	 * Sets how file contents are copied, <code>IOEngine.CHANNEL</code> by
+	 * default
+	 * 
+	 * @param io_engine
+	 *            <code>IOEngine</code> used for copying
+	 */
+	public void setIOEngine(IOEngine io_engine) {
+		this.io_engine = io_engine;
+	}
+
+	/**
+	 * Get how file contents are copied
+	 * 
+	 * @return <code>IOEngine</code> used for copying
+	 */
+	public IOEngine getIOEngine() {
+		return io_engine;
 	}
 
 	/**
@@ -64,6 +109,40 @@ public class FileOperations {
 		force_stop_operation = true;
 	}
 
+	/**
+	 * Total number of bytes copied by range copy operations
+	 * 
+	 * @return Bytes copied by <code>copyRange</code> as <code>long</code>
+	 */
+	public long getTransferredBytes() {
+		return transferred_bytes.get();
+	}
+
+	/**
+	 * Creates a fixed pool of daemon threads for processes which do their
+	 * operation in parallel
+	 * 
+	 * @param thread_nos
+	 *            Number of threads in the pool
+	 * @param thread_name
+	 *            Name of the threads, a thread number is appended to it
+	 * @return <code>ExecutorService</code> of the pool
+	 */
+	public static ExecutorService newWorkerPool(int thread_nos,
+			final String thread_name) {
+		return Executors.newFixedThreadPool(thread_nos, new ThreadFactory() {
+			private int thread_count = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, thread_name + " "
+						+ (++thread_count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
 	/**
 	 * Converts file size in bytes to its highest unit
 	 * 
@@ -118,6 +197,26 @@ public class FileOperations {
 		FileChannel src_channel = null;
 		FileChannel des_channel = null;
 
+		if (io_engine == IOEngine.MAPPED) {
+			try {
+				src_channel = new FileInputStream(src_file).getChannel();
+				// mapping needs read and write access to destination file
+				des_channel = new RandomAccessFile(dest_file, "rw")
+						.getChannel();
+				// Content is appended to destination file
+				copyMapped(src_channel, src_file_pos, src_file_len,
+						des_channel, des_channel.size(), false);
+			} finally {
+				if (src_channel != null) {
+					src_channel.close();
+				}
+				if (des_channel != null) {
+					des_channel.close();
+				}
+			}
+			return;
+		}
+
 		try {
 			// create necessary file channels
 			src_channel = new FileInputStream(src_file).getChannel();
@@ -157,4 +256,234 @@ public class FileOperations {
 			}
 		}
 	}
+
+	/**
+	 * Copies a range of the source channel to a position of the destination
+	 * channel. Unlike <code>copyFile</code> this can be called from several
+	 * threads at once: the source channel is only read with positional reads
+	 * so it may be shared, but each thread must use its own destination
+	 * channel.
+	 * 
+	 * The value passed to <code>updateFileStatus</code> is the total number of
+	 * bytes copied by all range copy operations of this object.
+	 * 
+	 * @param src_channel
+	 *            Source channel (may be shared between threads)
+	 * @param src_pos
+	 *            Starting position in the source channel
+	 * @param src_len
+	 *            Number of bytes that should be copied
+	 * @param des_channel
+	 *            Destination channel (not shared between threads), opened for
+	 *            reading and writing in <code>IOEngine.MAPPED</code>
+	 * @param des_pos
+	 *            Position in the destination channel where copying begins
+	 * @throws IOException
+	 */
+	public void copyRange(FileChannel src_channel, long src_pos,
+			long src_len, FileChannel des_channel, long des_pos)
+			throws IOException {
+
+		if (io_engine == IOEngine.MAPPED) {
+			copyMapped(src_channel, src_pos, src_len, des_channel, des_pos,
+					true);
+			return;
+		}
+
+		des_channel.position(des_pos);
+
+		// calculate source position up to which bytes are copied
+		long filesize_upto_pos = src_pos + src_len;
+
+		while (src_pos < filesize_upto_pos) {
+
+			// for stopping operation while execution
+			if (force_stop_operation) {
+				break;
+			}
+
+			long chunk_size = Math.min(CHUNK_SIZE, filesize_upto_pos - src_pos);
+			// positional transfer, source channel position is not changed
+			long bytes_copied = src_channel.transferTo(src_pos, chunk_size,
+					des_channel);
+			if (bytes_copied <= 0) {
+				throw new IOException("Unexpected end of file");
+			}
+			src_pos += bytes_copied;
+			// update file status with total bytes copied
+			file_process.updateFileStatus(transferred_bytes
+					.addAndGet(bytes_copied));
+		}
+	}
+
+	/*
+	 * Copies by mapping windows of source and destination files and copying
+	 * between the mapped buffers. Status is updated with total bytes copied
+	 * if range_copy, else with current source position.
+	 */
+	private void copyMapped(FileChannel src_channel, long src_pos,
+			long src_len, FileChannel des_channel, long des_pos,
+			boolean range_copy) throws IOException {
+
+		// calculate source position up to which bytes are copied
+		long filesize_upto_pos = src_pos + src_len;
+
+		while (src_pos < filesize_upto_pos) {
+
+			// for stopping operation while execution
+			if (force_stop_operation) {
+				break;
+			}
+
+			int window_size = (int) Math.min(MAP_WINDOW_SIZE,
+					filesize_upto_pos - src_pos);
+			MappedByteBuffer src_buffer = src_channel.map(
+					FileChannel.MapMode.READ_ONLY, src_pos, window_size);
+			// mapping beyond end of destination file extends it
+			MappedByteBuffer des_buffer = des_channel.map(
+					FileChannel.MapMode.READ_WRITE, des_pos, window_size);
+
+			// window is copied chunk by chunk to monitor progress
+			int window_pos = 0;
+			while (window_pos < window_size) {
+
+				// for stopping operation while execution
+				if (force_stop_operation) {
+					break;
+				}
+
+				int chunk_size = (int) Math.min(CHUNK_SIZE, window_size
+						- window_pos);
+				src_buffer.limit(window_pos + chunk_size);
+				des_buffer.put(src_buffer);
+
+				window_pos += chunk_size;
+				src_pos += chunk_size;
+				des_pos += chunk_size;
+
+				// update file status
+				if (range_copy) {
+					file_process.updateFileStatus(transferred_bytes
+							.addAndGet(chunk_size));
+				} else {
+					file_process.updateFileStatus(src_pos);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies a range of the source channel to a position of the destination
+	 * channel like <code>copyRange</code> and updates the digests with the
+	 * bytes copied. Bytes pass through a direct buffer (or a mapped window of
+	 * source in <code>IOEngine.MAPPED</code>) so they are read only once for
+	 * copying and calculating digests.
+	 * 
+	 * @param src_channel
+	 *            Source channel (may be shared between threads)
+	 * @param src_pos
+	 *            Starting position in the source channel
+	 * @param src_len
+	 *            Number of bytes that should be copied
+	 * @param des_channel
+	 *            Destination channel, if null bytes are only read for digests
+	 * @param des_pos
+	 *            Position in the destination channel where copying begins
+	 * @param digests
+	 *            <code>FileDigest</code>s updated with the bytes copied
+	 * @throws IOException
+	 */
+	public void copyRange(FileChannel src_channel, long src_pos,
+			long src_len, FileChannel des_channel, long des_pos,
+			FileDigest[] digests) throws IOException {
+
+		// calculate source position up to which bytes are copied
+		long filesize_upto_pos = src_pos + src_len;
+
+		ByteBuffer buffer = null;
+		if (io_engine != IOEngine.MAPPED) {
+			buffer = ByteBuffer.allocateDirect((int) Math.min(BUFFER_SIZE,
+					Math.max(1, src_len)));
+		}
+
+		while (src_pos < filesize_upto_pos) {
+
+			// for stopping operation while execution
+			if (force_stop_operation) {
+				break;
+			}
+
+			int chunk_size = (int) Math.min(BUFFER_SIZE, filesize_upto_pos
+					- src_pos);
+			if (io_engine == IOEngine.MAPPED) {
+				buffer = src_channel.map(FileChannel.MapMode.READ_ONLY,
+						src_pos, chunk_size);
+			} else {
+				buffer.clear();
+				buffer.limit(chunk_size);
+				while (buffer.hasRemaining()) {
+					if (src_channel.read(buffer, src_pos + buffer.position()) < 0) {
+						throw new IOException("Unexpected end of file");
+					}
+				}
+				buffer.flip();
+			}
+
+			// update digests
+			for (FileDigest digest : digests) {
+				buffer.rewind();
+				digest.update(buffer);
+			}
+
+			// write to destination
+			if (des_channel != null) {
+				buffer.rewind();
+				while (buffer.hasRemaining()) {
+					des_pos += des_channel.write(buffer, des_pos);
+				}
+			}
+
+			src_pos += chunk_size;
+			// update file status with total bytes copied
+			file_process.updateFileStatus(transferred_bytes
+					.addAndGet(chunk_size));
+		}
+	}
+
+	/**
+	 * Compares bytes of two channels, for checking contents written earlier
+	 * without reading whole files
+	 * 
+	 * @param channel1
+	 *            First channel
+	 * @param pos1
+	 *            Position in the first channel
+	 * @param channel2
+	 *            Second channel
+	 * @param pos2
+	 *            Position in the second channel
+	 * @param len
+	 *            Number of bytes compared
+	 * @return true if both have the same bytes, false if not or if any of
+	 *         them ends before
+	 * @throws IOException
+	 */
+	public static boolean sameBytes(FileChannel channel1, long pos1,
+			FileChannel channel2, long pos2, int len) throws IOException {
+		ByteBuffer buffer1 = ByteBuffer.allocate(len);
+		ByteBuffer buffer2 = ByteBuffer.allocate(len);
+		while (buffer1.hasRemaining()) {
+			if (channel1.read(buffer1, pos1 + buffer1.position()) < 0) {
+				return false;
+			}
+		}
+		while (buffer2.hasRemaining()) {
+			if (channel2.read(buffer2, pos2 + buffer2.position()) < 0) {
+				return false;
+			}
+		}
+		buffer1.flip();
+		buffer2.flip();
+		return buffer1.equals(buffer2);
+	}
 }
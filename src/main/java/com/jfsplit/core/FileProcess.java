@@ -47,8 +47,9 @@ public interface FileProcess extends Runnable {
 	 * </pre>
 	 * 
 	 * This method is manually called whenever a change occurs in file process
-	 * progress so it is used to inform <code>ProcessCaller</code> current
-	 * status of the <code>FileProcess</code>.
+	 * progress, on every chunk copied, so it only records the progress in
+	 * primitive counters. Status is passed to the <code>ProcessCaller</code>
+	 * by a <code>ProgressReporter</code> sampling the progress.
 	 * 
 	 * @param file_curpos
 	 *            Current position of the specified file
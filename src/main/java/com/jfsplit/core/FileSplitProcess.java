@@ -22,14 +22,31 @@ package com.jfsplit.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <code>FileSplitProcess</code> class is an implementation of the
  * <code>FileProcess</code> interface which is used for the process of splitting
- * files into parts.
+ * files into parts. Number of split files is passed to
+ * <code>ProcessCaller.completed</code> as an <code>Integer</code>.
  */
 public class FileSplitProcess implements FileProcess {
 
+	// Bytes at the end of a resumed split file compared with the source file
+	private static final int TAIL_CHECK_SIZE = 65536;
+
 	// source file
 	private File source_file;
 	// destination folder
@@ -41,8 +58,6 @@ public class FileSplitProcess implements FileProcess {
 	private long srcfile_curpos;
 	// Size of source file.
 	private long srcfile_size;
-	// Process startup time in nano seconds.
-	private long startup_time;
 
 	// Number of split files (Segments or Parts).
 	private int part_nos;
@@ -50,8 +65,44 @@ public class FileSplitProcess implements FileProcess {
 	private int skip_first_nos;
 	// Number of split files should be skipped from last.
 	private int skip_last_nos;
+	// Indexes of the split files created, null if not selected
+	private BitSet selected_parts;
+	// Number of selected split files being created
+	private int selected_nos;
 	// Which file is being processed.
 	private int cur_file;
+	// Number of threads used for splitting, 1 means parts are created one by one
+	private int thread_nos;
+	// True if parts are created by splitFileByParts
+	private boolean range_copy;
+	// Size of the parts skipped as per skip_first_nos and skip_last_nos
+	private long skipped_size;
+	// Number of split files completed in splitFileByParts
+	private AtomicInteger completed_parts;
+	// Set when a split file fails, other threads stop copying
+	private volatile boolean abort_workers;
+
+	// Algorithms of checksums written to sidecar file, null if none
+	private DigestAlgorithm[] checksum_algorithms;
+	// True if a manifest is written after splitting
+	private boolean write_manifest;
+	// Algorithms of checksums calculated while splitting, null if none
+	private DigestAlgorithm[] digest_algorithms;
+	// Checksums of each split file
+	private FileDigest[][] part_digests;
+	/*
+	 * Checksums of the whole file which can not be combined from checksums of
+	 * split files (null for those which can be)
+	 */
+	private FileDigest[] whole_digests;
+	// True if an interrupted splitting is resumed
+	private boolean resume;
+	// Journal of split files completed, null if not resumable
+	private CheckpointJournal journal;
+	// Index of CRC-32 in digest_algorithms, for recording in journal
+	private int crc_index;
+	// True if split files are carved from the end of the source file
+	private boolean in_place;
 
 	// ProcessCaller which invoked this process.
 	private ProcessCaller process_caller;
@@ -62,14 +113,16 @@ public class FileSplitProcess implements FileProcess {
 	 */
 	private FileOperations file_operations;
 
-	// For passing status of the process.
-	private Status status;
+	// Progress of the process, passed as status by a ProgressReporter
+	private Progress progress;
+	// Interval between status updates in milli seconds
+	private long status_interval;
 
 	/*
 	 * For stopping a process while execution. If true then the operation is
 	 * stopped
 	 */
-	private boolean force_stop;
+	private volatile boolean force_stop;
 
 	/**
 	 * Creates a file split process
@@ -101,11 +154,203 @@ public class FileSplitProcess implements FileProcess {
 		this.skip_last_nos = skip_last_nos;
 
 		file_operations = new FileOperations(this);
-		status = new Status();
+		progress = new Progress("Copying file");
+		status_interval = ProgressReporter.DEFAULT_INTERVAL;
+
+		thread_nos = 1;
+		completed_parts = new AtomicInteger();
 
 		force_stop = false;
 	}
 
+	/**
+	 * Sets number of threads used for splitting. If more than one, parts are
+	 * created in parallel by a pool of this much threads, each part being
+	 * copied independently from its own offset in the source file. Should be
+	 * called before the process is started.
+	 * 
+	 * @param thread_nos
+	 *            Number of threads (1 for splitting one part at a time)
+	 */
+	public void setThreadNos(int thread_nos) {
+		this.thread_nos = Math.max(1, thread_nos);
+	}
+
+	/**
+	 * Sets algorithms of checksums calculated while splitting. Checksums of
+	 * each split file and of the whole source file are calculated from the
+	 * bytes being copied and written to a checksum sidecar file next to the
+	 * split files. Checksum of the whole file is written only if no split
+	 * files are skipped, and for algorithms other than CRCs only if splitting
+	 * is done by one thread.
+	 * 
+	 * @param checksum_algorithms
+	 *            <code>DigestAlgorithm</code>s, or null for no checksums
+	 * @see ChecksumSidecar
+	 */
+	public void setChecksumAlgorithms(DigestAlgorithm[] checksum_algorithms) {
+		this.checksum_algorithms = (checksum_algorithms == null || checksum_algorithms.length == 0) ? null
+				: checksum_algorithms.clone();
+	}
+
+	/**
+	 * Sets whether a split manifest is written next to the split files. It
+	 * holds offset, length and checksums of each split file and checksums of
+	 * the whole file. Checksums are of the algorithms set by
+	 * <code>setChecksumAlgorithms</code>, or CRC-32 if none are set. If a
+	 * manifest of the same split exists, checksums of split files skipped now
+	 * are kept from it.
+	 * 
+	 * @param write_manifest
+	 *            true for writing a manifest
+	 * @see SplitManifest
+	 */
+	public void setWriteManifest(boolean write_manifest) {
+		this.write_manifest = write_manifest;
+	}
+
+	/**
+	 * Sets whether splitting is resumable. A journal (source file name + "."
+	 * + <code>CheckpointJournal.JOURNAL_FILE_EXT</code> in destination
+	 * folder) records length and CRC-32 of each split file after it is
+	 * durably written, so CRC-32 is always calculated while splitting. If the
+	 * splitting is stopped, the next run of the same source file and part
+	 * size creates only the split files which are not in the journal or whose
+	 * length or last bytes differ. Journal is deleted when splitting is
+	 * completed.
+	 * 
+	 * @param resume
+	 *            true for resumable splitting
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * Sets whether the source file is split in place, for splitting a file
+	 * on a disk without space for a copy of it. Split files are carved from
+	 * the end of the source file, the last one first: after each split file
+	 * is durably written and recorded in the journal, the source file is
+	 * truncated to its offset. The remaining source file is then renamed to
+	 * the first split file, so destination folder should be on the disk of
+	 * the source file. Splitting in place is always resumable as in
+	 * <code>setResume</code>, split files are created one at a time and
+	 * cannot be skipped, and checksums of the whole file are written only for
+	 * CRCs. Source file is truncated, so <code>IOEngine.MAPPED</code> is not
+	 * used.
+	 * 
+	 * @param in_place
+	 *            true for splitting in place
+	 */
+	public void setSplitInPlace(boolean in_place) {
+		this.in_place = in_place;
+	}
+
+	/**
+	 * Selects the split files created, for creating again some lost split
+	 * files from anywhere in the middle. Other split files are skipped and
+	 * their bytes are not read. Selected split files are created in parallel
+	 * as in <code>setThreadNos</code>, and progress is of the bytes of the
+	 * selected split files only. Checksum of the whole file is written only
+	 * if it can be combined from checksums of all split files, kept in the
+	 * manifest for those not selected.
+	 * 
+	 * @param selected_parts
+	 *            Indexes (from 0) of the split files created, or null for all
+	 *            except the skipped ones
+	 * @see #parsePartRanges(String)
+	 */
+	public void setSelectedParts(BitSet selected_parts) {
+		this.selected_parts = (selected_parts == null) ? null
+				: (BitSet) selected_parts.clone();
+	}
+
+	/**
+	 * Parses numbers and ranges of split files like "2,5-7" (numbers from 1,
+	 * as in the names of split files)
+	 * 
+	 * @param ranges
+	 *            Comma separated numbers and ranges of split files
+	 * @return Indexes (from 0) of the split files
+	 * @throws IllegalArgumentException
+	 *             If a number or range is invalid
+	 */
+	public static BitSet parsePartRanges(String ranges) {
+		BitSet parts = new BitSet();
+		for (String range : ranges.split(",")) {
+			range = range.trim();
+			int dash = range.indexOf('-');
+			try {
+				int first = Integer.parseInt((dash < 0) ? range : range
+						.substring(0, dash).trim());
+				int last = (dash < 0) ? first : Integer.parseInt(range
+						.substring(dash + 1).trim());
+				if (first >= 1 && last >= first) {
+					parts.set(first - 1, last);
+					continue;
+				}
+			} catch (NumberFormatException e) {
+				// reported below
+			}
+			throw new IllegalArgumentException("Invalid split files " + range);
+		}
+		return parts;
+	}
+
+	// Whether the part with the specified index (from 0) is created
+	private boolean isPartSelected(int i) {
+		return selected_parts == null || selected_parts.get(i);
+	}
+
+	/*
+	 * Size and number of the parts created, of the selected parts or of all
+	 * parts
+	 */
+	private long[] getSelectedSize() {
+		long size = source_file.length();
+		if (selected_parts == null) {
+			return new long[] { size, part_nos };
+		}
+		long selected_size = 0;
+		long selected_count = 0;
+		// selected parts which are not skipped
+		for (int i = selected_parts.nextSetBit(skip_first_nos); i >= 0
+				&& i < part_nos - skip_last_nos && i * part_size < size; i = selected_parts
+				.nextSetBit(i + 1)) {
+			selected_size += Math.min(part_size, size - i * part_size);
+			selected_count++;
+		}
+		return new long[] { selected_size, selected_count };
+	}
+
+	// Destination split file of the part with the specified index (from 0)
+	private File getPartFile(int i) {
+		String dest_file_name = source_file.getName() + "." + SPLIT_FILE_EXT
+				+ String.valueOf(i + 1);
+		return new File(dest_folder, dest_file_name);
+	}
+
+	/**
+	 * Sets how often status is passed to the <code>ProcessCaller</code>,
+	 * <code>ProgressReporter.DEFAULT_INTERVAL</code> by default
+	 * 
+	 * @param status_interval
+	 *            Interval between status updates in milli seconds
+	 */
+	public void setStatusInterval(long status_interval) {
+		this.status_interval = status_interval;
+	}
+
+	/**
+	 * Sets how file contents are copied while splitting
+	 * 
+	 * @param io_engine
+	 *            <code>IOEngine</code> used for copying
+	 */
+	public void setIOEngine(IOEngine io_engine) {
+		file_operations.setIOEngine(io_engine);
+	}
+
 	/**
 	 * Performs the file splitting operation
 	 * 
@@ -116,6 +361,46 @@ public class FileSplitProcess implements FileProcess {
 		srcfile_curpos = 0;
 		srcfile_size = source_file.length();
 
+		// checksums are needed for sidecar file or manifest
+		digest_algorithms = checksum_algorithms;
+		if (digest_algorithms == null && write_manifest) {
+			digest_algorithms = new DigestAlgorithm[] { DigestAlgorithm.CRC32 };
+		}
+		// CRC-32 of each split file is recorded in journal
+		if (resume || in_place) {
+			crc_index = -1;
+			for (int a = 0; digest_algorithms != null
+					&& a < digest_algorithms.length; a++) {
+				if (digest_algorithms[a] == DigestAlgorithm.CRC32) {
+					crc_index = a;
+				}
+			}
+			if (crc_index < 0) {
+				int algorithm_nos = (digest_algorithms == null) ? 0
+						: digest_algorithms.length;
+				DigestAlgorithm[] algorithms = new DigestAlgorithm[algorithm_nos + 1];
+				for (int a = 0; a < algorithm_nos; a++) {
+					algorithms[a] = digest_algorithms[a];
+				}
+				algorithms[algorithm_nos] = DigestAlgorithm.CRC32;
+				digest_algorithms = algorithms;
+				crc_index = algorithm_nos;
+			}
+		}
+
+		if (in_place) {
+			range_copy = true;
+			splitFileInPlace();
+			return;
+		}
+
+		// parts are copied through buffers if checksums are needed
+		range_copy = (thread_nos > 1 || digest_algorithms != null || selected_parts != null);
+		if (range_copy) {
+			splitFileByParts();
+			return;
+		}
+
 		// creates split files one on every loop
 		for (int i = 0; srcfile_curpos < srcfile_size; i++) {
 
@@ -125,9 +410,7 @@ public class FileSplitProcess implements FileProcess {
 			}
 
 			// Destination split file is created
-			String dest_file_name = source_file.getName() + "."
-					+ SPLIT_FILE_EXT + String.valueOf(i + 1);
-			File dest_file = new File(dest_folder, dest_file_name);
+			File dest_file = getPartFile(i);
 
 			if (dest_file.exists()) {
 				dest_file.delete();
@@ -144,6 +427,7 @@ public class FileSplitProcess implements FileProcess {
 			// for skipping split files from starting and last
 			// as per skip_first_nos and skip_last_nos
 			if ((i < skip_first_nos) || (i >= (part_nos - skip_last_nos))) {
+				progress.addSkippedBytes(bytes_tobe_copied);
 				updateFileStatus(srcfile_curpos + bytes_tobe_copied);
 				continue;
 			}
@@ -154,57 +438,668 @@ public class FileSplitProcess implements FileProcess {
 		}
 	}
 
+	/*
+	 * Creates the split files using a pool of thread_nos threads. Each part i
+	 * is copied from offset i * part_size of the source file independently of
+	 * other parts.
+	 */
+	private void splitFileByParts() throws IOException {
+
+		// number of parts the source file is divided into
+		int total_parts = (int) ((srcfile_size + part_size - 1) / part_size);
+
+		// parts from first_part to last_part (exclusive) are created
+		// as per skip_first_nos and skip_last_nos
+		int first_part = Math.min(skip_first_nos, total_parts);
+		int last_part = Math.max(first_part,
+				Math.min(total_parts, part_nos - skip_last_nos));
+
+		long first_offset = first_part * part_size;
+		long last_offset = Math.min(srcfile_size, last_part * part_size);
+		// progress is of the selected split files only
+		skipped_size = (selected_parts != null) ? 0 : srcfile_size
+				- (last_offset - first_offset);
+		selected_nos = 0;
+		for (int i = first_part; i < last_part; i++) {
+			if (isPartSelected(i)) {
+				selected_nos++;
+			}
+		}
+		completed_parts.set(0);
+		abort_workers = false;
+		cur_file = first_part + 1;
+
+		// source channel is shared, workers only use positional reads
+		FileChannel src_channel = FileChannel.open(source_file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			splitParts(src_channel, first_part, last_part, total_parts);
+		} finally {
+			src_channel.close();
+			// journal is kept for resuming
+			if (journal != null) {
+				journal.close();
+				journal = null;
+			}
+		}
+	}
+
+	/*
+	 * Creates the split files from first_part to last_part (exclusive) which
+	 * are not completed before resuming
+	 */
+	private void splitParts(FileChannel src_channel, int first_part,
+			int last_part, int total_parts) throws IOException {
+
+		// split files completed before resuming
+		boolean[] resumed_parts = new boolean[total_parts];
+		int resumed_nos = 0;
+		if (resume) {
+			journal = CheckpointJournal.open(
+					CheckpointJournal.getJournalFile(new File(dest_folder,
+							source_file.getName())),
+					CheckpointJournal.getIdentity(getJobDescription()));
+			for (int i = first_part; i < last_part; i++) {
+				if (isPartSelected(i) && isPartCompleted(src_channel, i)) {
+					resumed_parts[i] = true;
+					resumed_nos++;
+					skipped_size += getPartLength(i);
+				}
+			}
+			completed_parts.set(resumed_nos);
+		}
+		// skipped and resumed split files are counted as processed
+		progress.addSkippedBytes(skipped_size);
+		progress.setDoneBytes(skipped_size);
+
+		if (digest_algorithms != null) {
+			part_digests = new FileDigest[total_parts][];
+			/*
+			 * with one thread parts are copied in order, so all checksums of
+			 * the whole file can be calculated if no parts are resumed
+			 */
+			whole_digests = new FileDigest[digest_algorithms.length];
+			for (int i = 0; i < digest_algorithms.length; i++) {
+				if (thread_nos == 1 && resumed_nos == 0
+						&& selected_parts == null
+						&& !digest_algorithms[i].isCombinable()) {
+					whole_digests[i] = digest_algorithms[i].newDigest();
+				}
+			}
+		}
+
+		ExecutorService executor = FileOperations.newWorkerPool(thread_nos,
+				"File Splitting Worker Thread");
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = first_part; i < last_part; i++) {
+				if (resumed_parts[i] || !isPartSelected(i)) {
+					continue;
+				}
+				final int part_index = i;
+				final FileChannel part_src_channel = src_channel;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						splitPart(part_src_channel, part_index);
+						return null;
+					}
+				}));
+			}
+
+			// wait for all parts, first failure stops others
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					abortWorkers();
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IOException(e.getCause());
+				} catch (InterruptedException e) {
+					abortWorkers();
+					Thread.currentThread().interrupt();
+					throw new IOException("Splitting interrupted");
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (digest_algorithms != null && !force_stop && !abort_workers) {
+			writeChecksums(first_part, last_part, total_parts);
+		}
+
+		// journal is not needed after splitting is completed
+		if (journal != null && !force_stop && !abort_workers) {
+			journal.delete();
+			journal = null;
+		}
+	}
+
+	/*
+	 * Splits the source file in place. Journal records size of the source
+	 * file at index -1 before it is changed, and length and CRC-32 of each
+	 * split file before the source file is truncated. First part is recorded
+	 * before renaming, so that an interrupted rename is done again.
+	 */
+	private void splitFileInPlace() throws IOException {
+
+		// source file cannot be truncated while mapped windows of it are kept
+		file_operations.setIOEngine(IOEngine.CHANNEL);
+
+		String file_name = source_file.getName();
+		if (skip_first_nos > 0 || skip_last_nos > 0 || selected_parts != null) {
+			String errmsg = "Error during splitting.\nSplit files cannot be skipped while splitting "
+					+ file_name + " in place";
+			process_caller.showError(errmsg);
+			return;
+		}
+
+		/*
+		 * source file is missing only if it is renamed to the first split
+		 * file before the journal is deleted
+		 */
+		File journal_file = CheckpointJournal.getJournalFile(new File(
+				dest_folder, file_name));
+		if (!source_file.isFile() && !journal_file.isFile()) {
+			String errmsg = "Error during splitting.\n" + file_name
+					+ " not found";
+			process_caller.showError(errmsg);
+			return;
+		}
+
+		journal = CheckpointJournal.open(journal_file,
+				CheckpointJournal.getIdentity(getInPlaceDescription()));
+		try {
+			long[] size_checkpoint = journal.getCheckpoint(-1);
+			if (size_checkpoint == null) {
+				String errmsg = null;
+				if (!source_file.isFile()) {
+					errmsg = file_name + " not found";
+				} else if (!Files.getFileStore(source_file.toPath()).equals(
+						Files.getFileStore(dest_folder.toPath()))) {
+					// part 1 is renamed, so it should be on the same disk
+					errmsg = file_name + " is not on the disk of "
+							+ dest_folder.getName();
+				}
+				if (errmsg != null) {
+					// nothing is recorded in the journal
+					journal.delete();
+					journal = null;
+					process_caller.showError("Error during splitting.\n"
+							+ errmsg);
+					return;
+				}
+				journal.clear();
+				srcfile_size = source_file.length();
+				journal.checkpoint(-1, srcfile_size, 0);
+			} else {
+				srcfile_size = size_checkpoint[0];
+			}
+			int total_parts = (int) Math.max(1,
+					(srcfile_size + part_size - 1) / part_size);
+			// source file left may be shorter when resumed
+			part_nos = total_parts;
+
+			// split files carved before resuming, from the last one
+			int first_carved = total_parts;
+			while (first_carved > 0
+					&& journal.getCheckpoint(first_carved - 1) != null) {
+				first_carved--;
+			}
+			if (!checkCarvedParts(first_carved, total_parts)) {
+				return;
+			}
+
+			skipped_size = 0;
+			for (int i = Math.max(1, first_carved); i < total_parts; i++) {
+				skipped_size += getPartLength(i);
+			}
+			if (first_carved == 0) {
+				skipped_size = srcfile_size;
+			}
+			progress.setTotalBytes(srcfile_size);
+			progress.addSkippedBytes(skipped_size);
+			progress.setDoneBytes(skipped_size);
+			completed_parts.set(total_parts - first_carved);
+
+			part_digests = new FileDigest[total_parts][];
+			// parts are not copied in order, whole file is only combined
+			whole_digests = new FileDigest[digest_algorithms.length];
+
+			if (source_file.exists()) {
+				carveParts(first_carved);
+				if (force_stop) {
+					return;
+				}
+				File first_part_file = getPartFile(0);
+				if (first_part_file.exists()) {
+					first_part_file.delete();
+				}
+				Files.move(source_file.toPath(), first_part_file.toPath(),
+						StandardCopyOption.ATOMIC_MOVE);
+			}
+
+			writeChecksums(0, total_parts, total_parts);
+
+			// journal is not needed after splitting is completed
+			journal.delete();
+			journal = null;
+		} finally {
+			// journal is kept for resuming
+			if (journal != null) {
+				journal.close();
+				journal = null;
+			}
+		}
+	}
+
+	/*
+	 * Checks split files carved before resuming and the source file left,
+	 * which may be one split file longer if it was not truncated after it
+	 */
+	private boolean checkCarvedParts(int first_carved, int total_parts) {
+
+		for (int i = Math.max(1, first_carved); i < total_parts; i++) {
+			File part_file = getPartFile(i);
+			if (part_file.length() != getPartLength(i)
+					|| journal.getCheckpoint(i)[0] != getPartLength(i)) {
+				String errmsg = "Error during splitting.\n"
+						+ part_file.getName()
+						+ " is changed, splitting cannot be continued";
+				process_caller.showError(errmsg);
+				return false;
+			}
+		}
+
+		String errmsg;
+		if (source_file.exists()) {
+			long source_len = source_file.length();
+			long carved_offset = Math.min(srcfile_size, Math.max(1,
+					first_carved) * part_size);
+			if (source_len == carved_offset
+					|| (first_carved > 0 && first_carved < total_parts && source_len == Math
+							.min(srcfile_size, (first_carved + 1) * part_size))) {
+				return true;
+			}
+			errmsg = source_file.getName()
+					+ " is changed, splitting cannot be continued";
+		} else {
+			// source file is renamed already if all are carved
+			File first_part_file = getPartFile(0);
+			if (first_carved == 0 && first_part_file.exists()
+					&& first_part_file.length() == getPartLength(0)) {
+				return true;
+			}
+			errmsg = source_file.getName() + " is not found";
+		}
+		process_caller.showError("Error during splitting.\n" + errmsg);
+		return false;
+	}
+
+	/*
+	 * Carves split files before the specified one from the end of the source
+	 * file, truncating it after each, and records the first part left
+	 */
+	private void carveParts(int first_carved) throws IOException {
+		FileChannel src_channel = FileChannel.open(source_file.toPath(),
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			// source file may not be truncated after the last split file
+			src_channel.truncate(Math.min(srcfile_size, Math.max(1,
+					first_carved) * part_size));
+			src_channel.force(false);
+
+			for (int i = first_carved - 1; i >= 1; i--) {
+				cur_file = i + 1;
+				splitPart(src_channel, i);
+				if (force_stop) {
+					return;
+				}
+				// split file is recorded, its bytes are not needed
+				src_channel.truncate(i * part_size);
+				src_channel.force(false);
+			}
+
+			if (first_carved > 0) {
+				// first part is read only for its checksums
+				cur_file = 1;
+				long part_len = getPartLength(0);
+				FileDigest[] digests = new FileDigest[digest_algorithms.length];
+				for (int a = 0; a < digest_algorithms.length; a++) {
+					digests[a] = digest_algorithms[a].newDigest();
+				}
+				file_operations.copyRange(src_channel, 0, part_len, null, 0,
+						digests);
+				if (force_stop) {
+					return;
+				}
+				part_digests[0] = digests;
+				journal.checkpoint(0, part_len,
+						((ChecksumDigest) digests[crc_index])
+								.getChecksumValue());
+				completed_parts.incrementAndGet();
+			}
+		} finally {
+			src_channel.close();
+		}
+	}
+
+	/*
+	 * Describes splitting in place for identifying its journal, by the name
+	 * of the source file and the part size, as the source file is changed
+	 */
+	private String getInPlaceDescription() {
+		return "split in place " + source_file.getName() + "\n" + part_size;
+	}
+
+	// Size of the part with the specified index (from 0)
+	private long getPartLength(int i) {
+		return Math.min(part_size, srcfile_size - i * part_size);
+	}
+
+	/*
+	 * Describes this splitting for identifying its journal, by the name,
+	 * size and modification time of the source file and the part size
+	 */
+	private String getJobDescription() {
+		return "split " + source_file.getName() + "\n" + srcfile_size + "\n"
+				+ source_file.lastModified() + "\n" + part_size;
+	}
+
+	/*
+	 * Checks whether a split file is completed before resuming, it should be
+	 * in the journal with its length and have the same last bytes as the
+	 * source file
+	 */
+	private boolean isPartCompleted(FileChannel src_channel, int i)
+			throws IOException {
+		long[] checkpoint = journal.getCheckpoint(i);
+		long part_len = getPartLength(i);
+		File part_file = getPartFile(i);
+		if (checkpoint == null || checkpoint[0] != part_len
+				|| part_file.length() != part_len) {
+			return false;
+		}
+
+		int tail_size = (int) Math.min(TAIL_CHECK_SIZE, part_len);
+		FileChannel part_channel = FileChannel.open(part_file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			return FileOperations.sameBytes(src_channel, i * part_size
+					+ part_len - tail_size, part_channel, part_len
+					- tail_size, tail_size);
+		} finally {
+			part_channel.close();
+		}
+	}
+
+	/*
+	 * Checksum values of a split file, from its digests or, for a split file
+	 * completed before resuming, CRC-32 from the journal (others are null)
+	 */
+	private String[] getPartValues(int i) {
+		String[] values = new String[digest_algorithms.length];
+		if (part_digests[i] != null) {
+			for (int a = 0; a < digest_algorithms.length; a++) {
+				values[a] = part_digests[i][a].getValue();
+			}
+		} else if (journal != null && journal.getCheckpoint(i) != null) {
+			values[crc_index] = ChecksumDigest.toHexString(journal
+					.getCheckpoint(i)[1]);
+		}
+		return values;
+	}
+
+	/*
+	 * Writes checksums of the split files created (and of the whole file if
+	 * all are created) to the sidecar file and the manifest, keeping
+	 * checksums of other split files already in them
+	 */
+	private void writeChecksums(int first_part, int last_part,
+			int total_parts) throws IOException {
+
+		String file_name = source_file.getName();
+
+		// checksums of the split files, null if not known
+		String[][] part_values = new String[total_parts][];
+		for (int i = first_part; i < last_part; i++) {
+			part_values[i] = isPartSelected(i) ? getPartValues(i)
+					: new String[digest_algorithms.length];
+		}
+
+		// checksums of the whole file if all split files are created
+		String[] whole_values = new String[digest_algorithms.length];
+		if (first_part == 0 && last_part == total_parts) {
+			for (int a = 0; a < digest_algorithms.length; a++) {
+				DigestAlgorithm algorithm = digest_algorithms[a];
+				if (algorithm.isCombinable()) {
+					// combine checksums of split files in order
+					long value = 0;
+					for (int i = 0; i < total_parts && value >= 0; i++) {
+						if (part_values[i][a] == null) {
+							value = -1;
+						} else {
+							value = algorithm.combine(value,
+									Long.parseLong(part_values[i][a], 16),
+									getPartLength(i));
+						}
+					}
+					if (value >= 0) {
+						whole_values[a] = ChecksumDigest.toHexString(value);
+					}
+				} else if (whole_digests[a] != null) {
+					whole_values[a] = whole_digests[a].getValue();
+				}
+			}
+		}
+
+		if (checksum_algorithms != null) {
+			File sidecar_file = ChecksumSidecar.getSidecarFile(dest_folder,
+					file_name);
+			ChecksumSidecar sidecar = sidecar_file.exists() ? ChecksumSidecar
+					.read(sidecar_file) : new ChecksumSidecar();
+
+			for (int i = first_part; i < last_part; i++) {
+				for (int a = 0; a < digest_algorithms.length; a++) {
+					if (part_values[i][a] != null) {
+						sidecar.put(getPartFile(i).getName(),
+								digest_algorithms[a], part_values[i][a]);
+					}
+				}
+			}
+			for (int a = 0; a < digest_algorithms.length; a++) {
+				if (whole_values[a] != null) {
+					sidecar.put(file_name, digest_algorithms[a],
+							whole_values[a]);
+				}
+			}
+			sidecar.write(sidecar_file);
+		}
+
+		if (write_manifest) {
+			File manifest_file = SplitManifest.getManifestFile(dest_folder,
+					file_name);
+			SplitManifest manifest = new SplitManifest(file_name,
+					srcfile_size, part_size);
+
+			// keep checksums from manifest of the same split
+			if (manifest_file.exists()) {
+				SplitManifest old_manifest = null;
+				try {
+					old_manifest = SplitManifest.read(manifest_file);
+				} catch (IOException e) {
+					// invalid manifest is replaced
+				}
+				if (old_manifest != null && old_manifest.isSameSplit(manifest)) {
+					for (int i = 0; i < total_parts; i++) {
+						for (Map.Entry<DigestAlgorithm, String> checksum : old_manifest
+								.getPartChecksums(i).entrySet()) {
+							manifest.setPartChecksum(i, checksum.getKey(),
+									checksum.getValue());
+						}
+					}
+					for (Map.Entry<DigestAlgorithm, String> checksum : old_manifest
+							.getFileChecksums().entrySet()) {
+						manifest.setFileChecksum(checksum.getKey(),
+								checksum.getValue());
+					}
+				}
+			}
+
+			for (int i = first_part; i < last_part; i++) {
+				for (int a = 0; a < digest_algorithms.length; a++) {
+					if (part_values[i][a] != null) {
+						manifest.setPartChecksum(i, digest_algorithms[a],
+								part_values[i][a]);
+					}
+				}
+			}
+			for (int a = 0; a < digest_algorithms.length; a++) {
+				if (whole_values[a] != null) {
+					manifest.setFileChecksum(digest_algorithms[a],
+							whole_values[a]);
+				} else if (digest_algorithms[a].isCombinable()) {
+					combineFileChecksum(manifest, digest_algorithms[a]);
+				}
+			}
+			manifest.write(manifest_file);
+		}
+	}
+
+	/*
+	 * Combines checksum of the whole file from checksums of all split files
+	 * in the manifest, which may be created in different runs
+	 */
+	private void combineFileChecksum(SplitManifest manifest,
+			DigestAlgorithm algorithm) {
+		long value = 0;
+		for (int i = 0; i < manifest.getPartCount(); i++) {
+			String part_value = manifest.getPartChecksums(i).get(algorithm);
+			if (part_value == null) {
+				// not known for all split files
+				return;
+			}
+			value = algorithm.combine(value, Long.parseLong(part_value, 16),
+					manifest.getPartLength(i));
+		}
+		manifest.setFileChecksum(algorithm, ChecksumDigest.toHexString(value));
+	}
+
+	// stops all threads creating split files
+	private void abortWorkers() {
+		abort_workers = true;
+		file_operations.forceStopOperation();
+	}
+
+	// Creates the split file of the part with the specified index (from 0)
+	private void splitPart(FileChannel src_channel, int i) throws IOException {
+
+		// for stopping operation while execution
+		if (force_stop || abort_workers) {
+			return;
+		}
+
+		long part_offset = i * part_size;
+		long bytes_tobe_copied = Math.min(part_size, srcfile_size
+				- part_offset);
+
+		FileChannel des_channel = FileChannel.open(getPartFile(i).toPath(),
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			if (digest_algorithms != null) {
+				// checksums of the part followed by those of the whole file
+				FileDigest[] digests = new FileDigest[digest_algorithms.length
+						+ whole_digests.length];
+				int digest_nos = 0;
+				for (int a = 0; a < digest_algorithms.length; a++) {
+					digests[digest_nos++] = digest_algorithms[a].newDigest();
+				}
+				for (int a = 0; a < whole_digests.length; a++) {
+					if (whole_digests[a] != null) {
+						digests[digest_nos++] = whole_digests[a];
+					}
+				}
+				FileDigest[] copy_digests = new FileDigest[digest_nos];
+				System.arraycopy(digests, 0, copy_digests, 0, digest_nos);
+
+				file_operations.copyRange(src_channel, part_offset,
+						bytes_tobe_copied, des_channel, 0, copy_digests);
+
+				part_digests[i] = new FileDigest[digest_algorithms.length];
+				System.arraycopy(digests, 0, part_digests[i], 0,
+						digest_algorithms.length);
+
+				// record the split file after it is durable
+				if (journal != null && !force_stop && !abort_workers) {
+					des_channel.force(false);
+					journal.checkpoint(i, bytes_tobe_copied,
+							((ChecksumDigest) digests[crc_index])
+									.getChecksumValue());
+				}
+			} else {
+				file_operations.copyRange(src_channel, part_offset,
+						bytes_tobe_copied, des_channel, 0);
+			}
+		} finally {
+			des_channel.close();
+		}
+		completed_parts.incrementAndGet();
+	}
+
 	@Override
 	public void run() {
-		// record starting time
-		startup_time = System.nanoTime();
+		// status is passed by the reporter, not by the copying threads
+		long[] selected_size = getSelectedSize();
+		progress.start(selected_size[0], (int) selected_size[1]);
+		ProgressReporter reporter = new ProgressReporter(progress,
+				process_caller, status_interval);
+		reporter.start();
 		try {
 			// do operation
 			splitFile();
 		} catch (IOException e) {
 			String errmsg = "Error during splitting operation";
 			process_caller.showError(errmsg);
+		} finally {
+			reporter.stop();
 		}
 		if (!force_stop) {
+			// pass the final status
+			reporter.report();
 			// inform ProcessCaller that operation is completed
-			process_caller.completed(null);
+			process_caller.completed(new Integer[] { part_nos });
 		}
 	}
 
 	@Override
 	public void updateFileStatus(long file_curpos) {
-		// store file position passed from copy operation
-		srcfile_curpos = file_curpos;
-
-		// calculated time elapsed and remaining in nano seconds
-		long elapsed_time = System.nanoTime() - startup_time;
-		long time_for_byte = elapsed_time / srcfile_curpos;
-		long remaining_time = time_for_byte * (srcfile_size - srcfile_curpos);
-
-		// converting time elapsed in nano seconds to minutes : seconds
-		long elapsed_time_insecs = (long) (elapsed_time * 1E-9);
-		long elap_time_sec = elapsed_time_insecs % 60;
-		long elap_time_min = elapsed_time_insecs / 60;
-
-		// converting time remaining in nano seconds to minutes : seconds
-		long remaining_time_insecs = (long) (remaining_time * 1E-9);
-		long rem_time_sec = remaining_time_insecs % 60;
-		long rem_time_min = remaining_time_insecs / 60;
-
-		// calculating progress percentage
-		int progress_value = (int) (((double) srcfile_curpos / srcfile_size) * 100.0);
-
-		// set status
-		status.setProgressValue(progress_value);
-		status.setElapTimeStatus("Time Elapsed " + elap_time_min + " : "
-				+ elap_time_sec);
-		status.setRemTimeStatus("Estimated Time Remaining " + rem_time_min
-				+ " : " + rem_time_sec);
-		status.setFileStatus("Copying file " + cur_file + " of " + part_nos);
-		status.setSizeStatus(srcfile_curpos + " / " + srcfile_size + " Bytes");
-
-		// pass status to ProcessCaller
-		process_caller.updateStatus(status);
+		if (range_copy) {
+			/*
+			 * in splitting by parts position passed is the total bytes copied
+			 * by all threads
+			 */
+			progress.setDoneBytes(skipped_size + file_curpos);
+			if (in_place) {
+				// split files are carved from the last one
+				progress.setCurrentPart(cur_file);
+			} else if (selected_parts != null) {
+				progress.setCurrentPart(Math.min(selected_nos,
+						completed_parts.get() + 1));
+			} else {
+				progress.setCurrentPart(Math.min(part_nos, skip_first_nos
+						+ completed_parts.get() + 1));
+			}
+		} else {
+			// store file position passed from copy operation
+			srcfile_curpos = file_curpos;
+			progress.setDoneBytes(file_curpos);
+			progress.setCurrentPart(cur_file);
+		}
 	}
 
 	@Override
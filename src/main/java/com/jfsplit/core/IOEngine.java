@@ -0,0 +1,44 @@
+/*
+ * IOEngine.java
+ * An enum in JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+/**
+ * The <code>IOEngine</code> enum specifies how a <code>FileProcess</code>
+ * reads and copies file contents.
+ * 
+ * @see FileOperations#setIOEngine(IOEngine)
+ */
+public enum IOEngine {
+	/**
+	 * File channels, copying is done with <code>transferTo</code> and reading
+	 * with channel reads
+	 */
+	CHANNEL,
+	/**
+	 * Memory mapped files, windows of the files are mapped with
+	 * <code>FileChannel.map</code> and copied or read from the mapped buffers.
+	 * Mapped windows cannot be unmapped and are released only when they are
+	 * garbage collected. Until then they keep their address space, and on
+	 * Windows the files cannot be deleted or truncated, so splitting in place
+	 * and joining by consuming split files always use <code>CHANNEL</code>.
+	 */
+	MAPPED
+}
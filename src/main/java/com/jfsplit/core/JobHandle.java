@@ -0,0 +1,186 @@
+/*
+ * JobHandle.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle of a job submitted to a <code>JobScheduler</code>, for waiting until
+ * it is finished and for cancelling it. Cancelling a waiting job removes it
+ * from the queue and cancelling a running job stops its
+ * <code>FileProcess</code> with <code>forceStop</code>.
+ */
+public class JobHandle implements Runnable, Comparable<JobHandle> {
+
+	// states of a job
+	private static final int QUEUED = 0;
+	private static final int RUNNING = 1;
+	private static final int FINISHED = 2;
+
+	// scheduler running this job
+	private JobScheduler scheduler;
+	// process run as the job
+	private FileProcess process;
+	// priority of the job, higher runs first
+	private int priority;
+	// order of submission
+	private long sequence;
+	// state of the job
+	private int state;
+	// true if cancelled
+	private volatile boolean cancelled;
+	// released when the job is finished or removed from queue
+	private CountDownLatch finished;
+
+	JobHandle(JobScheduler scheduler, FileProcess process, int priority,
+			long sequence) {
+		this.scheduler = scheduler;
+		this.process = process;
+		this.priority = priority;
+		this.sequence = sequence;
+		state = QUEUED;
+		finished = new CountDownLatch(1);
+	}
+
+	/**
+	 * Process run as the job
+	 * 
+	 * @return <code>FileProcess</code> of the job
+	 */
+	public FileProcess getProcess() {
+		return process;
+	}
+
+	/**
+	 * Priority of the job
+	 * 
+	 * @return Priority as <code>int</code>, higher runs first
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	@Override
+	public void run() {
+		synchronized (this) {
+			// cancelled while waiting
+			if (state != QUEUED) {
+				return;
+			}
+			state = RUNNING;
+		}
+		scheduler.jobStarted();
+		try {
+			process.run();
+		} finally {
+			synchronized (this) {
+				state = FINISHED;
+			}
+			scheduler.jobFinished();
+			finished.countDown();
+		}
+	}
+
+	/**
+	 * Cancels the job. A waiting job is removed from the queue and never run,
+	 * a running job is stopped.
+	 * 
+	 * @return false if the job is already finished
+	 */
+	public boolean cancel() {
+		synchronized (this) {
+			if (state == FINISHED) {
+				return false;
+			}
+			cancelled = true;
+			if (state == QUEUED) {
+				state = FINISHED;
+				scheduler.remove(this);
+				finished.countDown();
+				return true;
+			}
+		}
+		// stop the running process
+		process.forceStop();
+		return true;
+	}
+
+	/**
+	 * Checks whether the job is cancelled
+	 * 
+	 * @return true if cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Checks whether the job is running
+	 * 
+	 * @return true if running
+	 */
+	public synchronized boolean isRunning() {
+		return state == RUNNING;
+	}
+
+	/**
+	 * Checks whether the job is finished (or cancelled before running)
+	 * 
+	 * @return true if finished
+	 */
+	public synchronized boolean isDone() {
+		return state == FINISHED;
+	}
+
+	/**
+	 * Waits until the job is finished
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void await() throws InterruptedException {
+		finished.await();
+	}
+
+	/**
+	 * Waits until the job is finished or the timeout
+	 * 
+	 * @param timeout
+	 *            Maximum time to wait
+	 * @param unit
+	 *            Unit of timeout
+	 * @return true if finished
+	 * @throws InterruptedException
+	 */
+	public boolean await(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return finished.await(timeout, unit);
+	}
+
+	@Override
+	public int compareTo(JobHandle handle) {
+		// higher priority first, then in order of submission
+		if (priority != handle.priority) {
+			return (priority > handle.priority) ? -1 : 1;
+		}
+		return Long.compare(sequence, handle.sequence);
+	}
+}
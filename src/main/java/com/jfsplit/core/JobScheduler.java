@@ -0,0 +1,192 @@
+/*
+ * JobScheduler.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs <code>FileProcess</code> jobs on a bounded number of threads. Jobs
+ * submitted when all threads are busy wait in a queue ordered by priority
+ * (higher first) and then by submission, so several splits, joins and
+ * checksums can be queued without running all of them on the disks at once.
+ * Each job gets a <code>JobHandle</code> for waiting and cancelling.
+ * 
+ * <pre>
+ * JobHandle handle = JobScheduler.getDefault().submit(split_process);
+ * handle.await();
+ * </pre>
+ */
+public class JobScheduler {
+
+	/**
+	 * Priority of jobs run after others
+	 */
+	public static final int PRIORITY_LOW = 0;
+	/**
+	 * Default priority of jobs
+	 */
+	public static final int PRIORITY_NORMAL = 5;
+	/**
+	 * Priority of jobs run before others
+	 */
+	public static final int PRIORITY_HIGH = 10;
+
+	/**
+	 * Number of jobs run at a time by the default scheduler
+	 */
+	public static final int DEFAULT_MAX_JOBS = 2;
+
+	// scheduler shared by the GUI panels
+	private static JobScheduler default_scheduler;
+
+	// threads running the jobs, queued jobs wait in a priority queue
+	private ThreadPoolExecutor executor;
+	// order of submission, for jobs of same priority
+	private AtomicLong job_sequence;
+	// number of jobs running
+	private AtomicInteger active_jobs;
+	// number of jobs finished (completed, failed or stopped)
+	private AtomicLong finished_jobs;
+
+	/**
+	 * Creates a scheduler
+	 * 
+	 * @param max_jobs
+	 *            Number of jobs run at a time
+	 */
+	public JobScheduler(int max_jobs) {
+		max_jobs = Math.max(1, max_jobs);
+		executor = new ThreadPoolExecutor(max_jobs, max_jobs, 60,
+				TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private int thread_count = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "File Process Job Thread "
+								+ (++thread_count));
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		// idle threads are not kept
+		executor.allowCoreThreadTimeOut(true);
+		job_sequence = new AtomicLong();
+		active_jobs = new AtomicInteger();
+		finished_jobs = new AtomicLong();
+	}
+
+	/**
+	 * Scheduler shared by the GUI, running <code>DEFAULT_MAX_JOBS</code> jobs
+	 * at a time
+	 * 
+	 * @return default <code>JobScheduler</code>
+	 */
+	public static synchronized JobScheduler getDefault() {
+		if (default_scheduler == null) {
+			default_scheduler = new JobScheduler(DEFAULT_MAX_JOBS);
+		}
+		return default_scheduler;
+	}
+
+	/**
+	 * Submits a job of normal priority
+	 * 
+	 * @param process
+	 *            <code>FileProcess</code> run as the job
+	 * @return <code>JobHandle</code> of the job
+	 */
+	public JobHandle submit(FileProcess process) {
+		return submit(process, PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Submits a job, it is run when a thread is free and no jobs of higher
+	 * priority or submitted earlier with same priority are waiting
+	 * 
+	 * @param process
+	 *            <code>FileProcess</code> run as the job
+	 * @param priority
+	 *            Priority of the job, higher runs first
+	 * @return <code>JobHandle</code> of the job
+	 */
+	public JobHandle submit(FileProcess process, int priority) {
+		JobHandle handle = new JobHandle(this, process, priority,
+				job_sequence.incrementAndGet());
+		executor.execute(handle);
+		return handle;
+	}
+
+	/**
+	 * Number of jobs waiting to be run
+	 * 
+	 * @return Queue depth as <code>int</code>
+	 */
+	public int getQueuedJobs() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * Number of jobs running
+	 * 
+	 * @return Active jobs as <code>int</code>
+	 */
+	public int getActiveJobs() {
+		return active_jobs.get();
+	}
+
+	/**
+	 * Number of jobs finished (completed, failed or stopped while running)
+	 * 
+	 * @return Finished jobs as <code>long</code>
+	 */
+	public long getFinishedJobs() {
+		return finished_jobs.get();
+	}
+
+	/**
+	 * Stops accepting jobs, queued and running jobs are still run
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	// removes a job from the queue, false if it is already taken
+	boolean remove(JobHandle handle) {
+		return executor.remove(handle);
+	}
+
+	// called by a job when it starts running
+	void jobStarted() {
+		active_jobs.incrementAndGet();
+	}
+
+	// called by a job when it finishes running
+	void jobFinished() {
+		active_jobs.decrementAndGet();
+		finished_jobs.incrementAndGet();
+	}
+}
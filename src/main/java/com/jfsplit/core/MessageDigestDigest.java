@@ -0,0 +1,86 @@
+/*
+ * MessageDigestDigest.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A <code>FileDigest</code> calculated with a
+ * <code>java.security.MessageDigest</code> (MD5, SHA-1, SHA-256).
+ */
+public class MessageDigestDigest implements FileDigest {
+
+	// hexadecimal digits for converting digest bytes
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	// algorithm of this digest
+	private DigestAlgorithm algorithm;
+	// message digest being calculated
+	private MessageDigest message_digest;
+	// calculated value, once value is taken digest is completed
+	private String value;
+
+	/**
+	 * Creates a digest which is calculated with the message digest of the
+	 * specified name
+	 * 
+	 * @param algorithm
+	 *            <code>DigestAlgorithm</code> of the digest
+	 * @param digest_name
+	 *            Name of the <code>MessageDigest</code> algorithm
+	 */
+	public MessageDigestDigest(DigestAlgorithm algorithm, String digest_name) {
+		this.algorithm = algorithm;
+		try {
+			message_digest = MessageDigest.getInstance(digest_name);
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform supports MD5, SHA-1 and SHA-256
+			throw new IllegalArgumentException(digest_name
+					+ " not supported", e);
+		}
+	}
+
+	@Override
+	public DigestAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	@Override
+	public void update(ByteBuffer buffer) {
+		message_digest.update(buffer);
+	}
+
+	@Override
+	public String getValue() {
+		if (value == null) {
+			byte[] digest = message_digest.digest();
+			char[] hex = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+				hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0F];
+			}
+			value = new String(hex);
+		}
+		return value;
+	}
+}
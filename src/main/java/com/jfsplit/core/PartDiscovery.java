@@ -0,0 +1,115 @@
+/*
+ * PartDiscovery.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the other split files of a selected split file. The folder is listed
+ * once and the names are parsed by <code>SplitPartName</code>, instead of
+ * checking each possible name, so sets with many thousands of parts are found
+ * quickly and any number of parts is supported.
+ */
+public class PartDiscovery {
+
+	private PartDiscovery() {
+	}
+
+	/**
+	 * Finds all split files in the folder of a split file, with the same name
+	 * and naming scheme
+	 * 
+	 * @param part_file
+	 *            A split file
+	 * @return <code>SplitSet</code> of the split files
+	 * @throws IOException
+	 *             If the folder cannot be read
+	 * @throws IllegalArgumentException
+	 *             If the file is not named like a split file
+	 */
+	public static SplitSet findSplitSet(File part_file) throws IOException {
+		SplitPartName part_name = SplitPartName.parse(part_file.getName());
+		if (part_name == null) {
+			throw new IllegalArgumentException(part_file.getName()
+					+ " is not a split file");
+		}
+		File folder = part_file.getAbsoluteFile().getParentFile();
+		SplitSet split_set = new SplitSet(folder, part_name.getBaseName(),
+				part_name.getScheme());
+
+		String prefix = part_name.getBaseName() + ".";
+		DirectoryStream<Path> stream = Files.newDirectoryStream(folder
+				.toPath());
+		try {
+			for (Path path : stream) {
+				String file_name = path.getFileName().toString();
+				if (!file_name.startsWith(prefix)) {
+					continue;
+				}
+				SplitPartName name = SplitPartName.parse(file_name);
+				if (name != null
+						&& name.getScheme() == part_name.getScheme()
+						&& name.getBaseName().equals(part_name.getBaseName())) {
+					split_set.addPart(name.getIndex(), file_name);
+				}
+			}
+		} finally {
+			stream.close();
+		}
+		return split_set;
+	}
+
+	/**
+	 * Finds the split files before and after a split file up to the first
+	 * missing part on each side, in the order of their index
+	 * 
+	 * @param part_file
+	 *            A split file
+	 * @return Array of split files including the specified one
+	 * @throws IOException
+	 *             If the folder cannot be read
+	 * @throws IllegalArgumentException
+	 *             If the file is not named like a split file
+	 */
+	public static File[] findParts(File part_file) throws IOException {
+		SplitSet split_set = findSplitSet(part_file);
+		int index = SplitPartName.parse(part_file.getName()).getIndex();
+		if (!split_set.hasPart(index)) {
+			return new File[0];
+		}
+
+		int first_index = index;
+		while (first_index > 1 && split_set.hasPart(first_index - 1)) {
+			first_index--;
+		}
+		List<File> part_files = new ArrayList<File>();
+		for (int i = first_index; split_set.hasPart(i); i++) {
+			part_files.add(split_set.getPartFile(i));
+		}
+		return part_files.toArray(new File[part_files.size()]);
+	}
+}
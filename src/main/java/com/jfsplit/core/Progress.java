@@ -0,0 +1,168 @@
+/*
+ * Progress.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>Progress</code> of a process is kept in primitive counters which are
+ * updated by the threads doing the work, without building any strings or
+ * locking. It is sampled by a <code>ProgressReporter</code> into a
+ * <code>Status</code> snapshot, so it can be read safely while many threads
+ * update it.
+ */
+public class Progress {
+
+	// Name of the task, like "Copying file"
+	private String task_name;
+	// Bytes processed including skipped bytes
+	private AtomicLong done_bytes;
+	// Bytes counted as processed without processing them now
+	private AtomicLong skipped_bytes;
+	// Total bytes to be processed
+	private volatile long total_bytes;
+	// Which file is being processed (from 1)
+	private volatile int cur_part;
+	// Number of files, 0 if the process has only one file
+	private volatile int total_parts;
+	// Time in nano seconds when the process is started
+	private volatile long start_time;
+
+	/**
+	 * Creates progress of a task
+	 * 
+	 * @param task_name
+	 *            Name of the task shown in file status, like "Copying file"
+	 */
+	public Progress(String task_name) {
+		this.task_name = task_name;
+		done_bytes = new AtomicLong();
+		skipped_bytes = new AtomicLong();
+		start_time = System.nanoTime();
+	}
+
+	/**
+	 * Starts the progress from zero and records the starting time
+	 * 
+	 * @param total_bytes
+	 *            Total bytes to be processed
+	 * @param total_parts
+	 *            Number of files, 0 if the process has only one file
+	 */
+	public void start(long total_bytes, int total_parts) {
+		this.total_bytes = total_bytes;
+		this.total_parts = total_parts;
+		done_bytes.set(0);
+		skipped_bytes.set(0);
+		cur_part = Math.min(1, total_parts);
+		start_time = System.nanoTime();
+	}
+
+	/**
+	 * Sets total bytes to be processed, if it is known only after starting
+	 * 
+	 * @param total_bytes
+	 *            Total bytes
+	 */
+	public void setTotalBytes(long total_bytes) {
+		this.total_bytes = total_bytes;
+	}
+
+	/**
+	 * Sets bytes processed. Progress never moves back, so threads can set
+	 * totals they have read in any order.
+	 * 
+	 * @param bytes
+	 *            Bytes processed including skipped bytes
+	 */
+	public void setDoneBytes(long bytes) {
+		long cur_bytes = done_bytes.get();
+		while (bytes > cur_bytes
+				&& !done_bytes.compareAndSet(cur_bytes, bytes)) {
+			cur_bytes = done_bytes.get();
+		}
+	}
+
+	/**
+	 * Adds to bytes processed
+	 * 
+	 * @param bytes
+	 *            Bytes processed now
+	 */
+	public void addDoneBytes(long bytes) {
+		done_bytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Adds to bytes counted as processed without processing them now, they
+	 * are not used for estimating remaining time. Should be added to bytes
+	 * processed also.
+	 * 
+	 * @param bytes
+	 *            Bytes skipped
+	 */
+	public void addSkippedBytes(long bytes) {
+		skipped_bytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Sets which file is being processed
+	 * 
+	 * @param cur_part
+	 *            Current file (from 1)
+	 */
+	public void setCurrentPart(int cur_part) {
+		this.cur_part = cur_part;
+	}
+
+	/**
+	 * Get bytes processed
+	 * 
+	 * @return Bytes processed including skipped bytes
+	 */
+	public long getDoneBytes() {
+		return done_bytes.get();
+	}
+
+	/**
+	 * Takes a snapshot of the progress, adding it as a sample to the
+	 * throughput estimator for rates and remaining time
+	 * 
+	 * @param estimator
+	 *            <code>ThroughputEstimator</code> of this progress
+	 * @return <code>Status</code> with current values
+	 */
+	public Status getStatus(ThroughputEstimator estimator) {
+		long done = done_bytes.get();
+		long skipped = skipped_bytes.get();
+		long total = total_bytes;
+		long elapsed_time = System.nanoTime() - start_time;
+
+		// skipped bytes are not processed, so not counted for rates
+		estimator.update(elapsed_time, done - skipped);
+
+		return new Status(task_name, done, skipped, total, cur_part,
+				total_parts, elapsed_time,
+				estimator.getRemainingTime(total - done),
+				estimator.getRate(), estimator.getInstantRate(),
+				estimator.getAverageRate(), estimator.getPeakRate());
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * ProgressReporter.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+/**
+ * A <code>ProgressReporter</code> samples the <code>Progress</code> of a
+ * process at a fixed interval on its own thread and passes the
+ * <code>Status</code> snapshot, with throughput estimated from the samples by
+ * a <code>ThroughputEstimator</code>, to the <code>ProcessCaller</code>.
+ * Threads doing the work only update counters, so status updates never slow them
+ * down however often they update.
+ */
+public class ProgressReporter implements Runnable {
+
+	/**
+	 * Default interval between status updates in milli seconds (10 times a
+	 * second)
+	 */
+	public static final long DEFAULT_INTERVAL = 100;
+
+	// Progress sampled
+	private Progress progress;
+	// ProcessCaller to which status is passed
+	private ProcessCaller process_caller;
+	// Interval between status updates in milli seconds
+	private long interval;
+	// Throughput estimated from the samples
+	private ThroughputEstimator estimator;
+	// Thread sampling the progress
+	private Thread reporter_thread;
+	// False when reporting is stopped
+	private volatile boolean reporting;
+
+	/**
+	 * Creates a reporter
+	 * 
+	 * @param progress
+	 *            <code>Progress</code> sampled
+	 * @param process_caller
+	 *            <code>ProcessCaller</code> to which status is passed
+	 * @param interval
+	 *            Interval between status updates in milli seconds
+	 */
+	public ProgressReporter(Progress progress, ProcessCaller process_caller,
+			long interval) {
+		this.progress = progress;
+		this.process_caller = process_caller;
+		this.interval = Math.max(1, interval);
+		estimator = new ThroughputEstimator();
+	}
+
+	/**
+	 * Starts reporting on a daemon thread
+	 */
+	public void start() {
+		reporting = true;
+		reporter_thread = new Thread(this, "Progress Reporter Thread");
+		reporter_thread.setDaemon(true);
+		reporter_thread.start();
+	}
+
+	/**
+	 * Stops reporting and waits for the reporter thread
+	 */
+	public void stop() {
+		reporting = false;
+		if (reporter_thread != null) {
+			reporter_thread.interrupt();
+			try {
+				reporter_thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			reporter_thread = null;
+		}
+	}
+
+	/**
+	 * Passes the current status to the <code>ProcessCaller</code>, used for
+	 * the final status after the process is completed
+	 */
+	public void report() {
+		process_caller.updateStatus(progress.getStatus(estimator));
+	}
+
+	@Override
+	public void run() {
+		while (reporting) {
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				break;
+			}
+			if (reporting) {
+				report();
+			}
+		}
+	}
+}
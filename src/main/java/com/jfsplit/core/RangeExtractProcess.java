@@ -0,0 +1,200 @@
+/*
+ * RangeExtractProcess.java
+ * A Runnable FileProcess in JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <code>RangeExtractProcess</code> class is an implementation of the
+ * <code>FileProcess</code> interface which is used for extracting a range of
+ * the original file from its split files without joining them. Only the split
+ * files having the range are read, through a <code>SplitSetChannel</code>.
+ * Indexes (from 0) of the first and last split files read are passed to
+ * <code>ProcessCaller.completed</code> as <code>Integer</code>s.
+ */
+public class RangeExtractProcess implements FileProcess {
+
+	// Bytes transferred at a time, between checks for stopping
+	private static final long TRANSFER_SIZE = 16777216; // 16 MB
+
+	// split file or manifest of the split files
+	private File split_file;
+	// offset of the range in the original file
+	private long offset;
+	// length of the range
+	private long length;
+	// destination file
+	private File dest_file;
+	// indexes of the first and last split files read
+	private Integer[] part_range;
+
+	// ProcessCaller which invoked this process.
+	private ProcessCaller process_caller;
+
+	// Progress of the process, passed as status by a ProgressReporter
+	private Progress progress;
+	// Interval between status updates in milli seconds
+	private long status_interval;
+
+	/*
+	 * For stopping a process while execution. If true then the operation is
+	 * stopped
+	 */
+	private volatile boolean force_stop;
+
+	/**
+	 * Creates a process to extract a range of the original file
+	 * 
+	 * @param process_caller
+	 *            <code>ProcessCaller</code> which invoked this process
+	 * @param split_file
+	 *            A split file, or the manifest of the split files
+	 * @param offset
+	 *            Offset of the range in the original file
+	 * @param length
+	 *            Length of the range
+	 * @param dest_file
+	 *            File to which the range is written
+	 */
+	public RangeExtractProcess(ProcessCaller process_caller, File split_file,
+			long offset, long length, File dest_file) {
+		this.process_caller = process_caller;
+		this.split_file = split_file;
+		this.offset = offset;
+		this.length = length;
+		this.dest_file = dest_file;
+
+		progress = new Progress("Extracting range");
+		status_interval = ProgressReporter.DEFAULT_INTERVAL;
+
+		force_stop = false;
+	}
+
+	/**
+	 * Sets how often status is passed to the <code>ProcessCaller</code>,
+	 * <code>ProgressReporter.DEFAULT_INTERVAL</code> by default
+	 * 
+	 * @param status_interval
+	 *            Interval between status updates in milli seconds
+	 */
+	public void setStatusInterval(long status_interval) {
+		this.status_interval = status_interval;
+	}
+
+	/**
+	 * Performs the extracting operation
+	 * 
+	 * @throws IOException
+	 */
+	public void extractRange() throws IOException {
+
+		// split files are checked when the channel is opened
+		SplitSetChannel split_channel;
+		try {
+			split_channel = SplitSetChannel.open(split_file);
+		} catch (IOException e) {
+			String errmsg = "Error during extracting.\n" + e.getMessage();
+			process_caller.showError(errmsg);
+			return;
+		}
+		try {
+			if (offset < 0 || length < 0
+					|| offset + length > split_channel.size()) {
+				String errmsg = "Error during extracting.\n"
+						+ "Range is beyond the end of the original file ("
+						+ split_channel.size() + " bytes)";
+				process_caller.showError(errmsg);
+				return;
+			}
+			if (length > 0) {
+				part_range = new Integer[] {
+						split_channel.getPartIndex(offset),
+						split_channel.getPartIndex(offset + length - 1) };
+			}
+
+			FileChannel des_channel = FileChannel.open(dest_file.toPath(),
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				long extracted_bytes = 0;
+				while (extracted_bytes < length) {
+
+					// for stopping operation while execution
+					if (force_stop) {
+						return;
+					}
+
+					extracted_bytes += split_channel.transferTo(offset
+							+ extracted_bytes,
+							Math.min(TRANSFER_SIZE, length - extracted_bytes),
+							des_channel);
+					updateFileStatus(extracted_bytes);
+				}
+			} finally {
+				des_channel.close();
+			}
+		} finally {
+			split_channel.close();
+		}
+	}
+
+	@Override
+	public void run() {
+		progress.start(length, 0);
+		ProgressReporter reporter = new ProgressReporter(progress,
+				process_caller, status_interval);
+		reporter.start();
+		try {
+			// do operation
+			extractRange();
+		} catch (IllegalArgumentException e) {
+			String errmsg = "Error during extracting.\n" + e.getMessage();
+			process_caller.showError(errmsg);
+		} catch (IOException e) {
+			String errmsg = "Error during extracting operation";
+			process_caller.showError(errmsg);
+		} finally {
+			reporter.stop();
+		}
+		if (!force_stop) {
+			// pass the final status
+			reporter.report();
+			// inform ProcessCaller that operation is completed
+			// with the first and last split files read
+			process_caller.completed(part_range);
+		}
+	}
+
+	@Override
+	public void updateFileStatus(long file_curpos) {
+		// bytes of the range extracted
+		progress.setDoneBytes(file_curpos);
+	}
+
+	@Override
+	public void forceStop() {
+		// stop operation
+		force_stop = true;
+	}
+}
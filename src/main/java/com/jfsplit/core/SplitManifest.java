@@ -0,0 +1,400 @@
+/*
+ * SplitManifest.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A split manifest describes the split files of a source file: name and size
+ * of the source file, size and number of split files, offset, length and
+ * checksums of each split file and checksums of the whole file. It is written
+ * as a small binary file next to the split files so that they can be joined
+ * and verified without looking for them in the folder.
+ * 
+ * <pre>
+ * SplitManifest manifest = SplitManifest.read(manifest_file);
+ * File[] split_files = manifest.getPartFiles(manifest_file.getParentFile());
+ * </pre>
+ */
+public class SplitManifest {
+
+	/**
+	 * Extension of a manifest file, it is named as source file name + "." +
+	 * MANIFEST_FILE_EXT
+	 */
+	public static final String MANIFEST_FILE_EXT = FileProcess.SPLIT_FILE_EXT
+			+ "m";
+
+	// "JFSM", first four bytes of a manifest file
+	private static final int MAGIC = 0x4A46534D;
+	// version of the manifest format
+	private static final int VERSION = 1;
+
+	// name of the source file
+	private String file_name;
+	// size of the source file
+	private long file_size;
+	// size of each split file (except the last)
+	private long part_size;
+	// offset of each split file in the source file
+	private long[] part_offsets;
+	// length of each split file
+	private long[] part_lengths;
+	// checksums of each split file, empty if not known
+	private List<Map<DigestAlgorithm, String>> part_checksums;
+	// checksums of the whole source file
+	private Map<DigestAlgorithm, String> file_checksums;
+
+	/**
+	 * Creates a manifest of a source file split into parts of part_size,
+	 * without any checksums
+	 * 
+	 * @param file_name
+	 *            Name of the source file
+	 * @param file_size
+	 *            Size of the source file
+	 * @param part_size
+	 *            Size of each split file (except the last)
+	 */
+	public SplitManifest(String file_name, long file_size, long part_size) {
+		this.file_name = file_name;
+		this.file_size = file_size;
+		this.part_size = part_size;
+
+		int part_nos = (int) ((file_size + part_size - 1) / part_size);
+		part_offsets = new long[part_nos];
+		part_lengths = new long[part_nos];
+		part_checksums = new ArrayList<Map<DigestAlgorithm, String>>(part_nos);
+		for (int i = 0; i < part_nos; i++) {
+			part_offsets[i] = i * part_size;
+			part_lengths[i] = Math.min(part_size, file_size - part_offsets[i]);
+			part_checksums.add(new LinkedHashMap<DigestAlgorithm, String>());
+		}
+		file_checksums = new LinkedHashMap<DigestAlgorithm, String>();
+	}
+
+	/**
+	 * Manifest file of the split files of a source file
+	 * 
+	 * @param dest_folder
+	 *            Folder of the split files
+	 * @param file_name
+	 *            Name of the source file
+	 * @return Manifest file as <code>File</code>
+	 */
+	public static File getManifestFile(File dest_folder, String file_name) {
+		return new File(dest_folder, file_name + "." + MANIFEST_FILE_EXT);
+	}
+
+	/**
+	 * Name of the source file
+	 * 
+	 * @return File name as <code>String</code>
+	 */
+	public String getFileName() {
+		return file_name;
+	}
+
+	/**
+	 * Size of the source file
+	 * 
+	 * @return File size in bytes
+	 */
+	public long getFileSize() {
+		return file_size;
+	}
+
+	/**
+	 * Size of each split file (except the last)
+	 * 
+	 * @return Part size in bytes
+	 */
+	public long getPartSize() {
+		return part_size;
+	}
+
+	/**
+	 * Number of split files
+	 * 
+	 * @return Number of split files
+	 */
+	public int getPartCount() {
+		return part_offsets.length;
+	}
+
+	/**
+	 * Name of a split file
+	 * 
+	 * @param i
+	 *            Index of the split file (from 0)
+	 * @return File name as <code>String</code>
+	 */
+	public String getPartName(int i) {
+		return file_name + "." + FileProcess.SPLIT_FILE_EXT + (i + 1);
+	}
+
+	/**
+	 * Offset of a split file in the source file
+	 * 
+	 * @param i
+	 *            Index of the split file (from 0)
+	 * @return Offset in bytes
+	 */
+	public long getPartOffset(int i) {
+		return part_offsets[i];
+	}
+
+	/**
+	 * Length of a split file
+	 * 
+	 * @param i
+	 *            Index of the split file (from 0)
+	 * @return Length in bytes
+	 */
+	public long getPartLength(int i) {
+		return part_lengths[i];
+	}
+
+	/**
+	 * Split files in a folder
+	 * 
+	 * @param folder
+	 *            Folder of the split files
+	 * @return <code>File</code>s of the split files in order
+	 */
+	public File[] getPartFiles(File folder) {
+		File[] part_files = new File[part_offsets.length];
+		for (int i = 0; i < part_files.length; i++) {
+			part_files[i] = new File(folder, getPartName(i));
+		}
+		return part_files;
+	}
+
+	/**
+	 * Checksums of a split file
+	 * 
+	 * @param i
+	 *            Index of the split file (from 0)
+	 * @return Checksum values by algorithm, empty if not known
+	 */
+	public Map<DigestAlgorithm, String> getPartChecksums(int i) {
+		return Collections.unmodifiableMap(part_checksums.get(i));
+	}
+
+	/**
+	 * Sets checksums of a split file
+	 * 
+	 * @param i
+	 *            Index of the split file (from 0)
+	 * @param digests
+	 *            Calculated <code>FileDigest</code>s of the split file
+	 */
+	public void setPartChecksums(int i, FileDigest[] digests) {
+		for (FileDigest digest : digests) {
+			part_checksums.get(i).put(digest.getAlgorithm(), digest.getValue());
+		}
+	}
+
+	/**
+	 * Sets a checksum of a split file
+	 * 
+	 * @param i
+	 *            Index of the split file (from 0)
+	 * @param algorithm
+	 *            <code>DigestAlgorithm</code> of the checksum
+	 * @param value
+	 *            Hexadecimal checksum value
+	 */
+	public void setPartChecksum(int i, DigestAlgorithm algorithm, String value) {
+		part_checksums.get(i).put(algorithm, value.toUpperCase());
+	}
+
+	/**
+	 * Checksums of the whole source file
+	 * 
+	 * @return Checksum values by algorithm, empty if not known
+	 */
+	public Map<DigestAlgorithm, String> getFileChecksums() {
+		return Collections.unmodifiableMap(file_checksums);
+	}
+
+	/**
+	 * Sets a checksum of the whole source file
+	 * 
+	 * @param algorithm
+	 *            <code>DigestAlgorithm</code> of the checksum
+	 * @param value
+	 *            Hexadecimal checksum value
+	 */
+	public void setFileChecksum(DigestAlgorithm algorithm, String value) {
+		file_checksums.put(algorithm, value.toUpperCase());
+	}
+
+	/**
+	 * Whether this manifest describes the same split as another one (same
+	 * source file name, size and part size)
+	 * 
+	 * @param manifest
+	 *            Other <code>SplitManifest</code>
+	 * @return true if both describe the same split files
+	 */
+	public boolean isSameSplit(SplitManifest manifest) {
+		return file_name.equals(manifest.file_name)
+				&& file_size == manifest.file_size
+				&& part_size == manifest.part_size;
+	}
+
+	/**
+	 * Checksums of this manifest as a sidecar, for verifying split files
+	 * while joining
+	 * 
+	 * @return <code>ChecksumSidecar</code> with checksums of split files and
+	 *         of the whole file
+	 */
+	public ChecksumSidecar toChecksumSidecar() {
+		ChecksumSidecar sidecar = new ChecksumSidecar();
+		for (int i = 0; i < part_offsets.length; i++) {
+			for (Map.Entry<DigestAlgorithm, String> checksum : part_checksums
+					.get(i).entrySet()) {
+				sidecar.put(getPartName(i), checksum.getKey(),
+						checksum.getValue());
+			}
+		}
+		for (Map.Entry<DigestAlgorithm, String> checksum : file_checksums
+				.entrySet()) {
+			sidecar.put(file_name, checksum.getKey(), checksum.getValue());
+		}
+		return sidecar;
+	}
+
+	/**
+	 * Writes this manifest to a file
+	 * 
+	 * @param manifest_file
+	 *            Manifest file as <code>File</code>
+	 * @throws IOException
+	 */
+	public void write(File manifest_file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(manifest_file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(file_name);
+			out.writeLong(file_size);
+			out.writeLong(part_size);
+			out.writeInt(part_offsets.length);
+			for (int i = 0; i < part_offsets.length; i++) {
+				out.writeLong(part_offsets[i]);
+				out.writeLong(part_lengths[i]);
+				writeChecksums(out, part_checksums.get(i));
+			}
+			writeChecksums(out, file_checksums);
+		} finally {
+			out.close();
+		}
+	}
+
+	// writes number of checksums followed by algorithm name and value of each
+	private static void writeChecksums(DataOutputStream out,
+			Map<DigestAlgorithm, String> checksums) throws IOException {
+		out.writeByte(checksums.size());
+		for (Map.Entry<DigestAlgorithm, String> checksum : checksums
+				.entrySet()) {
+			out.writeUTF(checksum.getKey().getName());
+			out.writeUTF(checksum.getValue());
+		}
+	}
+
+	/**
+	 * Reads a manifest file. The split files described are checked to cover
+	 * the whole source file without gaps.
+	 * 
+	 * @param manifest_file
+	 *            Manifest file as <code>File</code>
+	 * @return <code>SplitManifest</code> read from the file
+	 * @throws IOException
+	 *             if file can not be read or is not a valid manifest
+	 */
+	public static SplitManifest read(File manifest_file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(manifest_file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(manifest_file.getName()
+						+ " is not a split manifest");
+			}
+			String file_name = in.readUTF();
+			long file_size = in.readLong();
+			long part_size = in.readLong();
+			if (file_size < 0 || part_size <= 0) {
+				throw new IOException(manifest_file.getName()
+						+ " is not a valid split manifest");
+			}
+			SplitManifest manifest = new SplitManifest(file_name, file_size,
+					part_size);
+
+			int part_nos = in.readInt();
+			if (part_nos != manifest.getPartCount()) {
+				throw new IOException(manifest_file.getName()
+						+ " is not a valid split manifest");
+			}
+			for (int i = 0; i < part_nos; i++) {
+				// split files must follow each other as calculated
+				if (in.readLong() != manifest.part_offsets[i]
+						|| in.readLong() != manifest.part_lengths[i]) {
+					throw new IOException(manifest_file.getName()
+							+ " is not a valid split manifest");
+				}
+				readChecksums(in, manifest.part_checksums.get(i));
+			}
+			readChecksums(in, manifest.file_checksums);
+			return manifest;
+		} finally {
+			in.close();
+		}
+	}
+
+	// reads checksums written by writeChecksums, unknown algorithms ignored
+	private static void readChecksums(DataInputStream in,
+			Map<DigestAlgorithm, String> checksums) throws IOException {
+		int checksum_nos = in.readUnsignedByte();
+		for (int i = 0; i < checksum_nos; i++) {
+			DigestAlgorithm algorithm = DigestAlgorithm.forName(in.readUTF());
+			String value = in.readUTF();
+			if (algorithm != null) {
+				checksums.put(algorithm, value);
+			}
+		}
+	}
+}
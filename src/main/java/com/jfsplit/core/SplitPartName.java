@@ -0,0 +1,230 @@
+/*
+ * SplitPartName.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.util.Arrays;
+
+/**
+ * Name of a split file parsed into the name of the file it is split from, the
+ * naming scheme and the index of the part (from 1). Split files are named like
+ * <code>name.jfs1, name.jfs2, ...</code>, <code>name.001, name.002, ...</code>
+ * (with more digits after 999 parts) or <code>name.aa, name.ab, ...</code>
+ * like the suffixes of the <code>split</code> command. Letter suffixes
+ * widened by <code>split</code> after <code>yz</code> (<code>zaaa</code>,
+ * ...) continue the index.
+ */
+public class SplitPartName {
+
+	/**
+	 * Scheme of split files named like name.jfs1, name.jfs2, ...
+	 */
+	public static final int JFS_SCHEME = 0;
+	/**
+	 * Scheme of split files named like name.001, name.002, ...
+	 */
+	public static final int NUMBERED_SCHEME = 1;
+	/**
+	 * Scheme of split files named like name.aa, name.ab, ...
+	 */
+	public static final int LETTER_SCHEME = 2;
+
+	// longest letter suffix, so that the index fits in an int
+	private static final int MAX_LETTERS = 6;
+
+	// name of the file split
+	private String base_name;
+	// naming scheme of the split files
+	private int scheme;
+	// index of the part from 1
+	private int index;
+
+	private SplitPartName(String base_name, int scheme, int index) {
+		this.base_name = base_name;
+		this.scheme = scheme;
+		this.index = index;
+	}
+
+	/**
+	 * Parses the name of a split file
+	 * 
+	 * @param file_name
+	 *            Name of the file
+	 * @return <code>SplitPartName</code>, null if it is not a split file
+	 */
+	public static SplitPartName parse(String file_name) {
+		int ext_index = file_name.lastIndexOf('.');
+		if (ext_index <= 0 || ext_index == file_name.length() - 1) {
+			return null;
+		}
+		String base_name = file_name.substring(0, ext_index);
+		String ext = file_name.substring(ext_index + 1);
+
+		int scheme;
+		String digits;
+		if (ext.length() >= 3 && ext.length() <= 9 && isDigits(ext)) {
+			scheme = NUMBERED_SCHEME;
+			digits = ext;
+		} else if (ext.length() >= 2 && ext.length() <= MAX_LETTERS
+				&& isLetters(ext)
+				&& !ext.startsWith(FileProcess.SPLIT_FILE_EXT)) {
+			// jfsm, jfsj are files of JFSplit
+			return new SplitPartName(base_name, LETTER_SCHEME,
+					getLetterIndex(ext));
+		} else if (ext.regionMatches(true, 0, FileProcess.SPLIT_FILE_EXT, 0,
+				FileProcess.SPLIT_FILE_EXT.length())
+				&& ext.length() > FileProcess.SPLIT_FILE_EXT.length()
+				&& ext.length() <= FileProcess.SPLIT_FILE_EXT.length() + 9
+				&& isDigits(ext.substring(FileProcess.SPLIT_FILE_EXT.length()))) {
+			scheme = JFS_SCHEME;
+			digits = ext.substring(FileProcess.SPLIT_FILE_EXT.length());
+		} else {
+			return null;
+		}
+		int index = Integer.parseInt(digits);
+		return (index > 0) ? new SplitPartName(base_name, scheme, index)
+				: null;
+	}
+
+	// checks whether the string has only digits 0 to 9
+	private static boolean isDigits(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// checks whether the string has only letters a to z
+	private static boolean isLetters(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < 'a' || c > 'z') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Index of a letter suffix. aa to yz are 1 to 650, then split widens the
+	 * suffix with a z for each level: zaaa to zyzz, zzaaaa to zzyzzz, ...
+	 */
+	private static int getLetterIndex(String suffix) {
+		// number of z added by widening
+		int level = (suffix.length() - 2) / 2;
+		if (suffix.length() % 2 != 0 || !suffix.startsWith(repeat('z', level))
+				|| suffix.charAt(level) == 'z') {
+			level = 0;
+		}
+		int index = 1;
+		for (int i = 0; i < level; i++) {
+			// suffixes of the levels before
+			index += 25 * pow26(i + 1);
+		}
+		for (int i = level; i < suffix.length(); i++) {
+			index += (suffix.charAt(i) - 'a')
+					* pow26(suffix.length() - i - 1);
+		}
+		return index;
+	}
+
+	// letter suffix of an index, inverse of getLetterIndex
+	private static String getLetterSuffix(int index) {
+		int level = 0;
+		int value = index - 1;
+		while (value >= 25 * pow26(level + 1)) {
+			value -= 25 * pow26(level + 1);
+			level++;
+		}
+		char[] letters = new char[level + 2];
+		for (int i = letters.length - 1; i >= 0; i--) {
+			letters[i] = (char) ('a' + value % 26);
+			value /= 26;
+		}
+		return repeat('z', level) + new String(letters);
+	}
+
+	// 26 to the power
+	private static int pow26(int exponent) {
+		int result = 1;
+		for (int i = 0; i < exponent; i++) {
+			result *= 26;
+		}
+		return result;
+	}
+
+	// string of a character repeated
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	/**
+	 * Name of a split file
+	 * 
+	 * @param base_name
+	 *            Name of the file split
+	 * @param scheme
+	 *            Naming scheme of the split files
+	 * @param index
+	 *            Index of the part from 1
+	 * @return Name of the split file
+	 */
+	public static String getPartName(String base_name, int scheme, int index) {
+		if (scheme == NUMBERED_SCHEME) {
+			return base_name + "." + String.format("%03d", index);
+		} else if (scheme == LETTER_SCHEME) {
+			return base_name + "." + getLetterSuffix(index);
+		}
+		return base_name + "." + FileProcess.SPLIT_FILE_EXT + index;
+	}
+
+	/**
+	 * Name of the file split
+	 * 
+	 * @return Name as <code>String</code>
+	 */
+	public String getBaseName() {
+		return base_name;
+	}
+
+	/**
+	 * Naming scheme of the split file
+	 * 
+	 * @return <code>JFS_SCHEME</code>, <code>NUMBERED_SCHEME</code> or
+	 *         <code>LETTER_SCHEME</code>
+	 */
+	public int getScheme() {
+		return scheme;
+	}
+
+	/**
+	 * Index of the part
+	 * 
+	 * @return Index from 1
+	 */
+	public int getIndex() {
+		return index;
+	}
+}
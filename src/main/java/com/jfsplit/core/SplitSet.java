@@ -0,0 +1,296 @@
+/*
+ * SplitSet.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Split files of a file found in a folder, with the same naming scheme. The
+ * number of parts expected is taken from the manifest (or checksum file) of
+ * the split if it is found, else from the last part found. A set is complete
+ * if all the expected parts are found. Parts are kept as indexes and names in
+ * arrays, sorted by index when first read, so sets of many thousands of parts
+ * take little memory and time.
+ * 
+ * @see SplitSetScanner
+ * @see PartDiscovery
+ */
+public class SplitSet {
+
+	// folder of the split files
+	private File folder;
+	// name of the file split
+	private String base_name;
+	// naming scheme of the split files
+	private int scheme;
+	// indexes and file names of the parts found
+	private int[] part_indexes;
+	private String[] part_names;
+	// number of parts found
+	private int part_nos;
+	// true if parts are sorted by index without duplicates
+	private boolean sorted;
+	// number of parts given by the manifest or checksum file, 0 if unknown
+	private int expected_parts;
+	// manifest of the split, null if not found
+	private SplitManifest manifest;
+
+	/**
+	 * Creates an empty set
+	 * 
+	 * @param folder
+	 *            Folder of the split files
+	 * @param base_name
+	 *            Name of the file split
+	 * @param scheme
+	 *            Naming scheme of the split files
+	 */
+	public SplitSet(File folder, String base_name, int scheme) {
+		this.folder = folder;
+		this.base_name = base_name;
+		this.scheme = scheme;
+		part_indexes = new int[16];
+		part_names = new String[16];
+		part_nos = 0;
+		sorted = true;
+	}
+
+	/**
+	 * Adds a split file
+	 * 
+	 * @param index
+	 *            Index of the part from 1
+	 * @param file_name
+	 *            Name of the split file in the folder of the set
+	 */
+	public void addPart(int index, String file_name) {
+		if (part_nos == part_indexes.length) {
+			part_indexes = Arrays.copyOf(part_indexes, part_nos * 2);
+			part_names = Arrays.copyOf(part_names, part_nos * 2);
+		}
+		if (part_nos > 0 && index <= part_indexes[part_nos - 1]) {
+			sorted = false;
+		}
+		part_indexes[part_nos] = index;
+		part_names[part_nos] = file_name;
+		part_nos++;
+	}
+
+	/*
+	 * sorts the parts by index, sorting the index and position of each part
+	 * packed in a long, and drops parts with the same index
+	 */
+	private void sortParts() {
+		if (sorted) {
+			return;
+		}
+		long[] keys = new long[part_nos];
+		for (int i = 0; i < part_nos; i++) {
+			keys[i] = ((long) part_indexes[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+		int[] indexes = new int[Math.max(16, part_nos)];
+		String[] names = new String[indexes.length];
+		int count = 0;
+		for (int i = 0; i < part_nos; i++) {
+			int index = (int) (keys[i] >>> 32);
+			if (count == 0 || indexes[count - 1] != index) {
+				indexes[count] = index;
+				names[count] = part_names[(int) keys[i]];
+				count++;
+			}
+		}
+		part_indexes = indexes;
+		part_names = names;
+		part_nos = count;
+		sorted = true;
+	}
+
+	// position of a part in the sorted arrays, negative if not found
+	private int findPart(int index) {
+		sortParts();
+		return Arrays.binarySearch(part_indexes, 0, part_nos, index);
+	}
+
+	/**
+	 * Sets the manifest of the split, the number of parts is taken from it
+	 * 
+	 * @param manifest
+	 *            <code>SplitManifest</code>
+	 */
+	public void setManifest(SplitManifest manifest) {
+		this.manifest = manifest;
+		expected_parts = manifest.getPartCount();
+	}
+
+	/**
+	 * Sets number of parts, given by a checksum file
+	 * 
+	 * @param expected_parts
+	 *            Number of parts, 0 if unknown
+	 */
+	public void setExpectedParts(int expected_parts) {
+		this.expected_parts = expected_parts;
+	}
+
+	/**
+	 * Folder of the split files
+	 * 
+	 * @return Folder as <code>File</code>
+	 */
+	public File getFolder() {
+		return folder;
+	}
+
+	/**
+	 * Name of the file split
+	 * 
+	 * @return Name as <code>String</code>
+	 */
+	public String getBaseName() {
+		return base_name;
+	}
+
+	/**
+	 * Naming scheme of the split files
+	 * 
+	 * @return <code>SplitPartName.JFS_SCHEME</code>,
+	 *         <code>SplitPartName.NUMBERED_SCHEME</code> or
+	 *         <code>SplitPartName.LETTER_SCHEME</code>
+	 */
+	public int getScheme() {
+		return scheme;
+	}
+
+	/**
+	 * Manifest of the split
+	 * 
+	 * @return <code>SplitManifest</code>, null if not found
+	 */
+	public SplitManifest getManifest() {
+		return manifest;
+	}
+
+	/**
+	 * Number of parts of the split, from the manifest or checksum file if
+	 * found, else the index of the last part found
+	 * 
+	 * @return Number of parts
+	 */
+	public int getPartCount() {
+		if (expected_parts > 0) {
+			return expected_parts;
+		}
+		sortParts();
+		return (part_nos == 0) ? 0 : part_indexes[part_nos - 1];
+	}
+
+	/**
+	 * Checks whether a part is found
+	 * 
+	 * @param index
+	 *            Index of the part from 1
+	 * @return true if found
+	 */
+	public boolean hasPart(int index) {
+		return findPart(index) >= 0;
+	}
+
+	/**
+	 * Split file of a part
+	 * 
+	 * @param index
+	 *            Index of the part from 1
+	 * @return <code>File</code>, null if not found
+	 */
+	public File getPartFile(int index) {
+		int i = findPart(index);
+		return (i >= 0) ? new File(folder, part_names[i]) : null;
+	}
+
+	/**
+	 * Split files found in the order of their index
+	 * 
+	 * @return Array of split files
+	 */
+	public File[] getPartFiles() {
+		sortParts();
+		File[] part_files = new File[part_nos];
+		for (int i = 0; i < part_nos; i++) {
+			part_files[i] = new File(folder, part_names[i]);
+		}
+		return part_files;
+	}
+
+	/**
+	 * Indexes of the parts not found, parts after the last one found are
+	 * known only if the number of parts is in the manifest or checksum file
+	 * 
+	 * @return Missing indexes from 1
+	 */
+	public int[] getMissingParts() {
+		int part_count = getPartCount();
+		int[] missing_parts = new int[part_count - getPartsUpTo(part_count)];
+		int missing_nos = 0;
+		int next_index = 1;
+		for (int i = 0; i < part_nos && next_index <= part_count; i++) {
+			while (next_index < part_indexes[i] && next_index <= part_count) {
+				missing_parts[missing_nos++] = next_index++;
+			}
+			next_index = part_indexes[i] + 1;
+		}
+		while (next_index <= part_count) {
+			missing_parts[missing_nos++] = next_index++;
+		}
+		return missing_parts;
+	}
+
+	// number of parts found with index up to the specified one
+	private int getPartsUpTo(int index) {
+		int i = findPart(index);
+		return (i >= 0) ? i + 1 : -i - 1;
+	}
+
+	/**
+	 * Checks whether all the parts are found. Parts beyond the number of
+	 * parts in the manifest are not joined, so they do not matter.
+	 * 
+	 * @return true if complete
+	 */
+	public boolean isComplete() {
+		int part_count = getPartCount();
+		return part_count > 0 && getPartsUpTo(part_count) == part_count;
+	}
+
+	/**
+	 * File joined from this set, in the specified folder
+	 * 
+	 * @param dest_folder
+	 *            Folder of the joined file, null for the folder of the
+	 *            split files
+	 * @return Joined file
+	 */
+	public File getJoinedFile(File dest_folder) {
+		return new File((dest_folder != null) ? dest_folder : folder,
+				base_name);
+	}
+}
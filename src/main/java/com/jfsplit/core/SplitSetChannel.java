@@ -0,0 +1,414 @@
+/*
+ * SplitSetChannel.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A read-only <code>SeekableByteChannel</code> of the joined file of split
+ * files, for reading or streaming the original file without joining it on
+ * the disk. A position is mapped to a split file and an offset in it by
+ * binary search over the offsets of the split files, and channels of the
+ * recently read split files are kept open.
+ */
+public class SplitSetChannel implements SeekableByteChannel {
+
+	/**
+	 * Default number of split files whose channels are kept open
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 4;
+
+	// split files in order
+	private File[] part_files;
+	// offset of each split file in the joined file, followed by its size
+	private long[] part_offsets;
+	// position in the joined file
+	private long position;
+	// false after the channel is closed
+	private boolean open;
+	// open channels of split files by index, least recently used first
+	private Map<Integer, FileChannel> part_channels;
+	// number of split files kept open
+	private int cache_size;
+
+	/**
+	 * Creates a channel of split files, their sizes are the lengths of the
+	 * files
+	 * 
+	 * @param part_files
+	 *            Split files in order
+	 * @throws IOException
+	 *             If a split file is not found
+	 */
+	public SplitSetChannel(File[] part_files) throws IOException {
+		this(part_files, getLengths(part_files));
+	}
+
+	/**
+	 * Creates a channel of split files of the known sizes
+	 * 
+	 * @param part_files
+	 *            Split files in order
+	 * @param part_lengths
+	 *            Size of each split file
+	 * @throws IOException
+	 *             If a split file is not found or is of a different size
+	 */
+	public SplitSetChannel(File[] part_files, long[] part_lengths)
+			throws IOException {
+		this.part_files = part_files.clone();
+		part_offsets = new long[part_files.length + 1];
+		for (int i = 0; i < part_files.length; i++) {
+			if (!part_files[i].isFile()) {
+				throw new IOException(part_files[i].getName() + " not found");
+			}
+			if (part_files[i].length() != part_lengths[i]) {
+				throw new IOException(part_files[i].getName()
+						+ " is not of the size of the split file");
+			}
+			part_offsets[i + 1] = part_offsets[i] + part_lengths[i];
+		}
+		cache_size = DEFAULT_CACHE_SIZE;
+		part_channels = new LinkedHashMap<Integer, FileChannel>(16, 0.75f,
+				true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Integer, FileChannel> eldest) {
+				if (size() <= cache_size) {
+					return false;
+				}
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+		};
+		open = true;
+	}
+
+	/**
+	 * Opens a channel of the split files of a manifest, or of a split file
+	 * and the split files found before and after it
+	 * 
+	 * @param file
+	 *            Manifest or a split file
+	 * @return <code>SplitSetChannel</code> of the split files
+	 * @throws IOException
+	 *             If split files cannot be found or read
+	 * @throws IllegalArgumentException
+	 *             If the file is not named like a split file or manifest
+	 */
+	public static SplitSetChannel open(File file) throws IOException {
+		if (file.getName().toLowerCase()
+				.endsWith("." + SplitManifest.MANIFEST_FILE_EXT)) {
+			SplitManifest manifest = SplitManifest.read(file);
+			return open(manifest, file.getAbsoluteFile().getParentFile());
+		}
+		return new SplitSetChannel(PartDiscovery.findParts(file));
+	}
+
+	/**
+	 * Opens a channel of the split files of a manifest
+	 * 
+	 * @param manifest
+	 *            <code>SplitManifest</code> of the split files
+	 * @param folder
+	 *            Folder of the split files
+	 * @return <code>SplitSetChannel</code> of the split files
+	 * @throws IOException
+	 *             If a split file is not found or is of a different size
+	 */
+	public static SplitSetChannel open(SplitManifest manifest, File folder)
+			throws IOException {
+		long[] part_lengths = new long[manifest.getPartCount()];
+		for (int i = 0; i < part_lengths.length; i++) {
+			part_lengths[i] = manifest.getPartLength(i);
+		}
+		return new SplitSetChannel(manifest.getPartFiles(folder), part_lengths);
+	}
+
+	// lengths of the files, missing ones are found by the constructor
+	private static long[] getLengths(File[] part_files) {
+		long[] part_lengths = new long[part_files.length];
+		for (int i = 0; i < part_files.length; i++) {
+			part_lengths[i] = part_files[i].length();
+		}
+		return part_lengths;
+	}
+
+	/**
+	 * Sets how many split files are kept open, <code>DEFAULT_CACHE_SIZE</code>
+	 * by default
+	 * 
+	 * @param cache_size
+	 *            Number of channels of split files kept open
+	 */
+	public synchronized void setCacheSize(int cache_size) {
+		this.cache_size = Math.max(1, cache_size);
+	}
+
+	/**
+	 * Number of split files
+	 * 
+	 * @return Number of split files
+	 */
+	public int getPartCount() {
+		return part_files.length;
+	}
+
+	/**
+	 * Offset of a split file in the joined file
+	 * 
+	 * @param i
+	 *            Index of the split file (from 0)
+	 * @return Offset in bytes
+	 */
+	public long getPartOffset(int i) {
+		return part_offsets[i];
+	}
+
+	/**
+	 * Index of the split file having a position of the joined file
+	 * 
+	 * @param position
+	 *            Position in the joined file, less than its size
+	 * @return Index of the split file (from 0)
+	 */
+	public int getPartIndex(long position) {
+		// last split file starting at or before the position
+		int low = 0;
+		int high = part_files.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (part_offsets[mid] <= position) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * Channel of a split file, opened if it is not among the recently read
+	 * ones
+	 */
+	private FileChannel getPartChannel(int i) throws IOException {
+		FileChannel part_channel = part_channels.get(i);
+		if (part_channel == null) {
+			part_channel = FileChannel.open(part_files[i].toPath(),
+					StandardOpenOption.READ);
+			part_channels.put(i, part_channel);
+		}
+		return part_channel;
+	}
+
+	// closes a channel of a split file, it is only read
+	private static void closeQuietly(FileChannel part_channel) {
+		try {
+			part_channel.close();
+		} catch (IOException e) {
+			// nothing is lost
+		}
+	}
+
+	@Override
+	public synchronized int read(ByteBuffer dst) throws IOException {
+		int read_bytes = read(dst, position);
+		if (read_bytes > 0) {
+			position += read_bytes;
+		}
+		return read_bytes;
+	}
+
+	/**
+	 * Reads bytes from a position of the joined file, without changing the
+	 * position of this channel
+	 * 
+	 * @param dst
+	 *            Buffer into which bytes are read
+	 * @param position
+	 *            Position in the joined file
+	 * @return Number of bytes read, or -1 if the position is at the end
+	 * @throws IOException
+	 */
+	public synchronized int read(ByteBuffer dst, long position)
+			throws IOException {
+		checkOpen();
+		if (position >= size()) {
+			return -1;
+		}
+
+		int read_bytes = 0;
+		int limit = dst.limit();
+		try {
+			while (dst.hasRemaining() && position < size()) {
+				int i = getPartIndex(position);
+				long part_pos = position - part_offsets[i];
+				long part_remaining = part_offsets[i + 1] - position;
+				if (dst.remaining() > part_remaining) {
+					dst.limit(dst.position() + (int) part_remaining);
+				}
+				int n = getPartChannel(i).read(dst, part_pos);
+				if (n < 0) {
+					throw new IOException("Unexpected end of "
+							+ part_files[i].getName());
+				}
+				dst.limit(limit);
+				position += n;
+				read_bytes += n;
+			}
+		} finally {
+			dst.limit(limit);
+		}
+		return read_bytes;
+	}
+
+	/**
+	 * Transfers a range of the joined file to a channel, only the split files
+	 * having the range are read. Bytes are transferred from each split file by
+	 * <code>FileChannel.transferTo</code>, without copying them through a
+	 * buffer where the system supports it. Position of this channel is not
+	 * changed.
+	 * 
+	 * @param position
+	 *            Position in the joined file where the range begins
+	 * @param count
+	 *            Number of bytes in the range
+	 * @param target
+	 *            Channel to which bytes are written
+	 * @return Number of bytes transferred, less than count if the range is
+	 *         beyond the end of the joined file or if a non-blocking target
+	 *         can not take more bytes
+	 * @throws IOException
+	 */
+	public synchronized long transferTo(long position, long count,
+			WritableByteChannel target) throws IOException {
+		checkOpen();
+		long end = Math.min(size(), position + count);
+		long transferred_bytes = 0;
+		while (position < end) {
+			int i = getPartIndex(position);
+			long part_pos = position - part_offsets[i];
+			long part_count = Math.min(end, part_offsets[i + 1]) - position;
+			FileChannel part_channel = getPartChannel(i);
+			long n = part_channel.transferTo(part_pos, part_count, target);
+			if (n <= 0) {
+				// nothing is transferred at the end of a short split file
+				if (part_channel.size() < part_offsets[i + 1]
+						- part_offsets[i]) {
+					throw new IOException("Unexpected end of "
+							+ part_files[i].getName());
+				}
+				// a non-blocking target is full
+				break;
+			}
+			position += n;
+			transferred_bytes += n;
+		}
+		return transferred_bytes;
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public synchronized long position() throws IOException {
+		checkOpen();
+		return position;
+	}
+
+	@Override
+	public synchronized SeekableByteChannel position(long new_position)
+			throws IOException {
+		checkOpen();
+		if (new_position < 0) {
+			throw new IllegalArgumentException("Negative position");
+		}
+		position = new_position;
+		return this;
+	}
+
+	@Override
+	public long size() {
+		return part_offsets[part_files.length];
+	}
+
+	@Override
+	public SeekableByteChannel truncate(long size) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	/**
+	 * <code>InputStream</code> reading the joined file from the position of
+	 * this channel
+	 * 
+	 * @return <code>InputStream</code> of this channel
+	 */
+	public InputStream newInputStream() {
+		return Channels.newInputStream(this);
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (!open) {
+			return;
+		}
+		open = false;
+		IOException error = null;
+		for (FileChannel part_channel : part_channels.values()) {
+			try {
+				part_channel.close();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		part_channels.clear();
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private void checkOpen() throws ClosedChannelException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * SplitSetScanner.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds all split sets in a folder tree by walking it once. Split files are
+ * grouped by folder, name of the file split and naming scheme into
+ * <code>SplitSet</code>s, and the manifest or checksum file found with a set
+ * gives its number of parts. Folders that cannot be read are skipped and
+ * counted.
+ * 
+ * <pre>
+ * SplitSetScanner scanner = new SplitSetScanner();
+ * scanner.scan(folder);
+ * List&lt;SplitSet&gt; sets = scanner.getCompleteSets();
+ * </pre>
+ */
+public class SplitSetScanner {
+
+	// sets found by folder, name and scheme
+	private Map<String, SplitSet> split_sets;
+	// manifest and checksum files found
+	private Set<Path> metadata_files;
+	// number of files or folders which could not be read
+	private int failed_paths;
+
+	/**
+	 * Creates a scanner
+	 */
+	public SplitSetScanner() {
+		split_sets = new LinkedHashMap<String, SplitSet>();
+		metadata_files = new HashSet<Path>();
+	}
+
+	/**
+	 * Walks a folder tree and adds the split sets found
+	 * 
+	 * @param root_folder
+	 *            Folder to be scanned with its sub folders
+	 * @throws IOException
+	 *             If the folder cannot be read
+	 */
+	public void scan(File root_folder) throws IOException {
+		Files.walkFileTree(root_folder.toPath(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) {
+				if (attrs.isRegularFile()) {
+					addFile(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				failed_paths++;
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		/*
+		 * many extensions like .gz look like letter suffixes and like .2023
+		 * look like numbered ones, so these sets are taken only if their first
+		 * part (.aa, .001) is found or their split files are listed in a
+		 * checksum file
+		 */
+		Iterator<SplitSet> set_iterator = split_sets.values().iterator();
+		while (set_iterator.hasNext()) {
+			SplitSet split_set = set_iterator.next();
+			if (split_set.getScheme() != SplitPartName.JFS_SCHEME
+					&& !split_set.hasPart(1) && !isListed(split_set)) {
+				set_iterator.remove();
+			}
+		}
+
+		// number of parts from manifest or checksum files
+		for (SplitSet split_set : split_sets.values()) {
+			if (split_set.getScheme() == SplitPartName.JFS_SCHEME) {
+				readMetadata(split_set);
+			}
+		}
+	}
+
+	// adds a file found to its set
+	private void addFile(Path file) {
+		String file_name = file.getFileName().toString();
+		String lower_name = file_name.toLowerCase();
+		if (lower_name.endsWith("." + SplitManifest.MANIFEST_FILE_EXT)
+				|| lower_name.endsWith("." + ChecksumSidecar.SIDECAR_FILE_EXT)) {
+			metadata_files.add(file);
+			return;
+		}
+
+		SplitPartName part_name = SplitPartName.parse(file_name);
+		if (part_name == null) {
+			return;
+		}
+		File folder = file.getParent().toFile();
+		String key = folder.getPath() + File.separatorChar
+				+ part_name.getBaseName() + File.pathSeparatorChar
+				+ part_name.getScheme();
+		SplitSet split_set = split_sets.get(key);
+		if (split_set == null) {
+			split_set = new SplitSet(folder, part_name.getBaseName(),
+					part_name.getScheme());
+			split_sets.put(key, split_set);
+		}
+		split_set.addPart(part_name.getIndex(), file_name);
+	}
+
+	/*
+	 * checks whether a split file of a set is in its checksum file, manifests
+	 * list only .jfs split files
+	 */
+	private boolean isListed(SplitSet split_set) {
+		File sidecar_file = ChecksumSidecar.getSidecarFile(
+				split_set.getFolder(), split_set.getBaseName());
+		if (!metadata_files.contains(sidecar_file.toPath())) {
+			return false;
+		}
+		Set<String> listed_names;
+		try {
+			listed_names = ChecksumSidecar.read(sidecar_file).getFileNames();
+		} catch (IOException e) {
+			failed_paths++;
+			return false;
+		}
+		for (File part_file : split_set.getPartFiles()) {
+			if (listed_names.contains(part_file.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// reads manifest or checksum file of a set, if found in the walk
+	private void readMetadata(SplitSet split_set) {
+		File manifest_file = SplitManifest.getManifestFile(
+				split_set.getFolder(), split_set.getBaseName());
+		File sidecar_file = ChecksumSidecar.getSidecarFile(
+				split_set.getFolder(), split_set.getBaseName());
+		try {
+			if (metadata_files.contains(manifest_file.toPath())) {
+				split_set.setManifest(SplitManifest.read(manifest_file));
+			} else if (metadata_files.contains(sidecar_file.toPath())) {
+				// parts of the file in the checksum file
+				int part_count = 0;
+				for (String file_name : ChecksumSidecar.read(sidecar_file)
+						.getFileNames()) {
+					SplitPartName part_name = SplitPartName.parse(file_name);
+					if (part_name != null
+							&& part_name.getScheme() == SplitPartName.JFS_SCHEME
+							&& part_name.getBaseName().equals(
+									split_set.getBaseName())) {
+						part_count++;
+					}
+				}
+				split_set.setExpectedParts(part_count);
+			}
+		} catch (IOException e) {
+			// number of parts is taken from the parts found
+			failed_paths++;
+		}
+	}
+
+	/**
+	 * All split sets found
+	 * 
+	 * @return List of sets in the order found
+	 */
+	public List<SplitSet> getSplitSets() {
+		return new ArrayList<SplitSet>(split_sets.values());
+	}
+
+	/**
+	 * Split sets with all parts found
+	 * 
+	 * @return List of complete sets
+	 */
+	public List<SplitSet> getCompleteSets() {
+		return getSets(true);
+	}
+
+	/**
+	 * Split sets with missing parts
+	 * 
+	 * @return List of incomplete sets
+	 * @see SplitSet#getMissingParts()
+	 */
+	public List<SplitSet> getIncompleteSets() {
+		return getSets(false);
+	}
+
+	// sets which are complete or not
+	private List<SplitSet> getSets(boolean complete) {
+		List<SplitSet> sets = new ArrayList<SplitSet>();
+		for (SplitSet split_set : split_sets.values()) {
+			if (split_set.isComplete() == complete) {
+				sets.add(split_set);
+			}
+		}
+		return sets;
+	}
+
+	/**
+	 * Number of files or folders which could not be read while scanning
+	 * 
+	 * @return Number of failed paths
+	 */
+	public int getFailedPaths() {
+		return failed_paths;
+	}
+}
@@ -23,84 +23,185 @@ package com.jfsplit.core;
 
 /**
  * The <code>Status</code> class is used to pass necessary information from
- * <code>FileProcess</code> to <code>ProcessCaller</code>.
+ * <code>FileProcess</code> to <code>ProcessCaller</code>. It is a snapshot of
+ * the <code>Progress</code> of a process holding only primitive values, taken
+ * by a <code>ProgressReporter</code>. Status strings are formatted from them
+ * only when they are asked for, by the <code>ProcessCaller</code>.
  */
 public class Status {
 
-	// String indicating which file is being processed
-	private String file_status;
-	// String indicating how much of the file is processed
-	private String size_status;
-	// String indicating time elapsed for the process
-	private String elaptime_status;
-	// String indicating estimated remaining time needed for the process
-	private String rem_timestatus;
-	// Integer indicating current progress of the process out of 100
-	private int progress_value;
+	// Name of the task, like "Copying file"
+	private String task_name;
+	// Bytes processed including skipped bytes
+	private long done_bytes;
+	// Bytes counted as processed without processing them now
+	private long skipped_bytes;
+	// Total bytes to be processed
+	private long total_bytes;
+	// Which file is being processed (from 1)
+	private int cur_part;
+	// Number of files, 0 if the process has only one file
+	private int total_parts;
+	// Time elapsed for the process in nano seconds
+	private long elapsed_time;
+	// Estimated time remaining in nano seconds, 0 if not known
+	private long remaining_time;
+	// Moving average, last sample, average and peak rates in MB per second
+	private double rate;
+	private double instant_rate;
+	private double average_rate;
+	private double peak_rate;
 
 	/**
-	 * Sets blank (nothing) for all status
+	 * Creates a status with the specified values
+	 * 
+	 * @param task_name
+	 *            Name of the task, like "Copying file"
+	 * @param done_bytes
+	 *            Bytes processed including skipped bytes
+	 * @param skipped_bytes
+	 *            Bytes counted as processed without processing them now
+	 * @param total_bytes
+	 *            Total bytes to be processed
+	 * @param cur_part
+	 *            Which file is being processed (from 1)
+	 * @param total_parts
+	 *            Number of files, 0 if the process has only one file
+	 * @param elapsed_time
+	 *            Time elapsed for the process in nano seconds
+	 * @param remaining_time
+	 *            Estimated time remaining in nano seconds, 0 if not known
+	 * @param rate
+	 *            Moving average of the rate in MB per second
+	 * @param instant_rate
+	 *            Rate of the last sample in MB per second
+	 * @param average_rate
+	 *            Average rate from start in MB per second
+	 * @param peak_rate
+	 *            Highest rate in MB per second
+	 * @see ThroughputEstimator
 	 */
-	public Status() {
-		file_status = "";
-		size_status = "";
-		elaptime_status = "";
-		rem_timestatus = "";
-		progress_value = 0;
+	public Status(String task_name, long done_bytes, long skipped_bytes,
+			long total_bytes, int cur_part, int total_parts,
+			long elapsed_time, long remaining_time, double rate,
+			double instant_rate, double average_rate, double peak_rate) {
+		this.task_name = task_name;
+		this.done_bytes = done_bytes;
+		this.skipped_bytes = skipped_bytes;
+		this.total_bytes = total_bytes;
+		this.cur_part = cur_part;
+		this.total_parts = total_parts;
+		this.elapsed_time = elapsed_time;
+		this.remaining_time = remaining_time;
+		this.rate = rate;
+		this.instant_rate = instant_rate;
+		this.average_rate = average_rate;
+		this.peak_rate = peak_rate;
 	}
 
 	/*
-	 * Set Methods for various status
+	 * Get Methods for values of the status
+	 */
+
+	/**
+	 * Get bytes processed, including skipped bytes
+	 * 
+	 * @return Bytes processed as <code>long</code>
+	 */
+	public long getDoneBytes() {
+		return done_bytes;
+	}
+
+	/**
+	 * Get bytes counted as processed without processing them now (skipped or
+	 * completed before resuming)
+	 * 
+	 * @return Skipped bytes as <code>long</code>
+	 */
+	public long getSkippedBytes() {
+		return skipped_bytes;
+	}
+
+	/**
+	 * Get total bytes to be processed
+	 * 
+	 * @return Total bytes as <code>long</code>
+	 */
+	public long getTotalBytes() {
+		return total_bytes;
+	}
+
+	/**
+	 * Get which file is being processed
+	 * 
+	 * @return Current file (from 1) as <code>int</code>
 	 */
+	public int getCurrentPart() {
+		return cur_part;
+	}
+
+	/**
+	 * Get number of files processed
+	 * 
+	 * @return Number of files, 0 if the process has only one file
+	 */
+	public int getTotalParts() {
+		return total_parts;
+	}
+
+	/**
+	 * Get time elapsed for the process
+	 * 
+	 * @return Elapsed time in nano seconds
+	 */
+	public long getElapsedTime() {
+		return elapsed_time;
+	}
 
 	/**
-	 * Set progress of process out of 100
+	 * Get estimated time remaining for the process, from the moving average
+	 * of the rate
 	 * 
-	 * @param progress_value
-	 *            Integer indicating progress value (should be <= 100)
+	 * @return Remaining time in nano seconds, 0 if not known
 	 */
-	public void setProgressValue(int progress_value) {
-		this.progress_value = progress_value;
+	public long getRemainingTime() {
+		return remaining_time;
 	}
 
 	/**
-	 * Set file status (which file is being processed)
+	 * Get moving average of the rate, used for estimating remaining time
 	 * 
-	 * @param file_status
-	 *            String indicating file status
+	 * @return Rate in MB per second
 	 */
-	public void setFileStatus(String file_status) {
-		this.file_status = file_status;
+	public double getRate() {
+		return rate;
 	}
 
 	/**
-	 * Set size status (how much of the file is processed)
+	 * Get rate of the last sample
 	 * 
-	 * @param size_status
-	 *            String indicating size status
+	 * @return Rate in MB per second
 	 */
-	public void setSizeStatus(String size_status) {
-		this.size_status = size_status;
+	public double getInstantRate() {
+		return instant_rate;
 	}
 
 	/**
-	 * Set elapsed time status (time elapsed for the process)
+	 * Get average rate from start
 	 * 
-	 * @param elaptime_status
-	 *            String indicating elapsed time status
+	 * @return Rate in MB per second
 	 */
-	public void setElapTimeStatus(String elaptime_status) {
-		this.elaptime_status = elaptime_status;
+	public double getAverageRate() {
+		return average_rate;
 	}
 
 	/**
-	 * Set remaining time status (estimated remaining time for the process)
+	 * Get highest rate
 	 * 
-	 * @param rem_timestatus
-	 *            String indicating remaining time status
+	 * @return Rate in MB per second
 	 */
-	public void setRemTimeStatus(String rem_timestatus) {
-		this.rem_timestatus = rem_timestatus;
+	public double getPeakRate() {
+		return peak_rate;
 	}
 
 	/*
@@ -113,16 +214,22 @@ public class Status {
 	 * @return Progress value as <code>int</code>
 	 */
 	public int getProgressValue() {
-		return progress_value;
+		if (total_bytes <= 0) {
+			return 0;
+		}
+		return (int) (((double) done_bytes / total_bytes) * 100.0);
 	}
 
 	/**
 	 * Get file status (which file is being processed)
 	 * 
-	 * @return File status as </code>String<code>
+	 * @return File status as <code>String</code>
 	 */
 	public String getFileStatus() {
-		return file_status;
+		if (total_parts <= 0) {
+			return task_name;
+		}
+		return task_name + " " + cur_part + " of " + total_parts;
 	}
 
 	/**
@@ -131,7 +238,7 @@ public class Status {
 	 * @return Size status as <code>String</code>
 	 */
 	public String getSizeStatus() {
-		return size_status;
+		return done_bytes + " / " + total_bytes + " Bytes";
 	}
 
 	/**
@@ -140,7 +247,7 @@ public class Status {
 	 * @return Elapsed time status as <code>String</code>
 	 */
 	public String getElapTimeStatus() {
-		return elaptime_status;
+		return "Time Elapsed " + getTimeStr(elapsed_time);
 	}
 
 	/**
@@ -149,7 +256,31 @@ public class Status {
 	 * @return Remaining time status as <code>String</code>
 	 */
 	public String getRemTimeStatus() {
-		return rem_timestatus;
+		return "Estimated Time Remaining " + getTimeStr(getRemainingTime());
+	}
+
+	/**
+	 * Get throughput status (current, average and peak rates)
+	 * 
+	 * @return Throughput status as <code>String</code>
+	 */
+	public String getThroughputStatus() {
+		return "Speed " + getRateStr(rate) + " MB/s (Average "
+				+ getRateStr(average_rate) + ", Peak " + getRateStr(peak_rate)
+				+ ")";
+	}
+
+	// formats a rate with one decimal place
+	private static String getRateStr(double rate) {
+		return String.valueOf(Math.round(rate * 10) / 10.0);
+	}
+
+	// converts time in nano seconds to minutes : seconds
+	private static String getTimeStr(long time) {
+		long time_insecs = (long) (time * 1E-9);
+		long time_sec = time_insecs % 60;
+		long time_min = time_insecs / 60;
+		return time_min + " : " + time_sec;
 	}
 
 }
@@ -0,0 +1,156 @@
+/*
+ * ThroughputEstimator.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+/**
+ * Estimates throughput of a process from samples of the bytes processed. It
+ * keeps an exponentially weighted moving average (EWMA) of the rate with a
+ * time window, so the estimate follows changes in speed without jumping on
+ * every sample, along with the instantaneous rate of the last sample, the
+ * average rate from the start and the peak rate. Remaining time is estimated
+ * from the moving average. Rates are in bytes per second as
+ * <code>double</code>, so they are not truncated on fast devices.
+ */
+public class ThroughputEstimator {
+
+	/**
+	 * Default time window of the moving average in nano seconds
+	 */
+	public static final long DEFAULT_WINDOW = 5000000000L; // 5 seconds
+
+	// bytes in a MB, for converting rates
+	private static final double MB = 1048576.0;
+
+	// time window of the moving average in nano seconds
+	private long window;
+	// time (elapsed from start) and bytes of the last sample
+	private long last_time;
+	private long last_bytes;
+	// true after the first sample with some bytes
+	private boolean has_rate;
+
+	// rates in bytes per second
+	private double ewma_rate;
+	private double instant_rate;
+	private double average_rate;
+	private double peak_rate;
+
+	/**
+	 * Creates an estimator with the default window
+	 */
+	public ThroughputEstimator() {
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Creates an estimator
+	 * 
+	 * @param window
+	 *            Time window of the moving average in nano seconds
+	 */
+	public ThroughputEstimator(long window) {
+		this.window = Math.max(1, window);
+	}
+
+	/**
+	 * Adds a sample of the bytes processed
+	 * 
+	 * @param elapsed_time
+	 *            Time elapsed from start in nano seconds
+	 * @param bytes
+	 *            Bytes processed from start (not including skipped bytes)
+	 */
+	public synchronized void update(long elapsed_time, long bytes) {
+		long interval = elapsed_time - last_time;
+		if (interval <= 0) {
+			return;
+		}
+
+		instant_rate = (bytes - last_bytes) * 1E9 / interval;
+		average_rate = bytes * 1E9 / Math.max(1, elapsed_time);
+		peak_rate = Math.max(peak_rate, instant_rate);
+
+		if (!has_rate) {
+			// start from the average, nothing is known before
+			if (bytes > 0) {
+				ewma_rate = average_rate;
+				has_rate = true;
+			}
+		} else {
+			// weight of the new sample depends on its length in the window
+			double alpha = 1.0 - Math.exp(-(double) interval / window);
+			ewma_rate += alpha * (instant_rate - ewma_rate);
+		}
+
+		last_time = elapsed_time;
+		last_bytes = bytes;
+	}
+
+	/**
+	 * Estimates time needed for the remaining bytes from the moving average
+	 * 
+	 * @param remaining_bytes
+	 *            Bytes remaining to be processed
+	 * @return Remaining time in nano seconds, 0 if not known yet
+	 */
+	public synchronized long getRemainingTime(long remaining_bytes) {
+		if (!has_rate || ewma_rate <= 0 || remaining_bytes <= 0) {
+			return 0;
+		}
+		return (long) (remaining_bytes / ewma_rate * 1E9);
+	}
+
+	/**
+	 * Moving average of the rate
+	 * 
+	 * @return Rate in MB per second
+	 */
+	public synchronized double getRate() {
+		return ewma_rate / MB;
+	}
+
+	/**
+	 * Rate of the last sample
+	 * 
+	 * @return Rate in MB per second
+	 */
+	public synchronized double getInstantRate() {
+		return instant_rate / MB;
+	}
+
+	/**
+	 * Average rate from start
+	 * 
+	 * @return Rate in MB per second
+	 */
+	public synchronized double getAverageRate() {
+		return average_rate / MB;
+	}
+
+	/**
+	 * Highest rate of a sample
+	 * 
+	 * @return Rate in MB per second
+	 */
+	public synchronized double getPeakRate() {
+		return peak_rate / MB;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * XXHash64Digest.java
+ * A part of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A <code>FileDigest</code> which calculates the 64 bit xxHash (XXH64) with
+ * seed 0.
+ */
+public class XXHash64Digest implements FileDigest {
+
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+	// Number of bytes processed in one stripe
+	private static final int STRIPE_SIZE = 32;
+
+	// accumulators
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+
+	// bytes of an incomplete stripe kept for next update
+	private ByteBuffer stripe;
+	// total number of bytes updated
+	private long total_len;
+
+	/**
+	 * Creates an xxHash64 digest
+	 */
+	public XXHash64Digest() {
+		v1 = PRIME1 + PRIME2;
+		v2 = PRIME2;
+		v3 = 0;
+		v4 = -PRIME1;
+		stripe = ByteBuffer.allocate(STRIPE_SIZE).order(
+				ByteOrder.LITTLE_ENDIAN);
+		total_len = 0;
+	}
+
+	@Override
+	public DigestAlgorithm getAlgorithm() {
+		return DigestAlgorithm.XXHASH64;
+	}
+
+	@Override
+	public void update(ByteBuffer buffer) {
+		total_len += buffer.remaining();
+
+		// complete a stripe left from previous update
+		if (stripe.position() > 0) {
+			while (stripe.hasRemaining() && buffer.hasRemaining()) {
+				stripe.put(buffer.get());
+			}
+			if (stripe.hasRemaining()) {
+				return;
+			}
+			stripe.flip();
+			processStripe(stripe, 0);
+			stripe.clear();
+		}
+
+		// process whole stripes directly from the buffer
+		ByteBuffer input = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		int stripes_end = input.limit() - (input.limit() % STRIPE_SIZE);
+		for (int i = 0; i < stripes_end; i += STRIPE_SIZE) {
+			processStripe(input, i);
+		}
+		buffer.position(buffer.position() + stripes_end);
+
+		// keep remaining bytes
+		stripe.put(buffer);
+	}
+
+	// processes 32 bytes starting from index of the buffer
+	private void processStripe(ByteBuffer input, int index) {
+		v1 = round(v1, input.getLong(index));
+		v2 = round(v2, input.getLong(index + 8));
+		v3 = round(v3, input.getLong(index + 16));
+		v4 = round(v4, input.getLong(index + 24));
+	}
+
+	@Override
+	public String getValue() {
+		return Long.toHexString(getHashValue()).toUpperCase();
+	}
+
+	/**
+	 * Hash value of the bytes updated so far
+	 * 
+	 * @return Hash value as <code>long</code>
+	 */
+	public long getHashValue() {
+		long hash;
+		if (total_len >= STRIPE_SIZE) {
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+					+ Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			hash = mergeRound(hash, v1);
+			hash = mergeRound(hash, v2);
+			hash = mergeRound(hash, v3);
+			hash = mergeRound(hash, v4);
+		} else {
+			hash = PRIME5;
+		}
+		hash += total_len;
+
+		// remaining bytes of the incomplete stripe
+		int len = stripe.position();
+		int i = 0;
+		for (; i + 8 <= len; i += 8) {
+			hash ^= round(0, stripe.getLong(i));
+			hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+		}
+		if (i + 4 <= len) {
+			hash ^= (stripe.getInt(i) & 0xFFFFFFFFL) * PRIME1;
+			hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+			i += 4;
+		}
+		for (; i < len; i++) {
+			hash ^= (stripe.get(i) & 0xFFL) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+		}
+
+		// avalanche
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+		return hash;
+	}
+
+	private static long round(long acc, long input) {
+		acc += input * PRIME2;
+		acc = Long.rotateLeft(acc, 31);
+		return acc * PRIME1;
+	}
+
+	private static long mergeRound(long acc, long val) {
+		acc ^= round(0, val);
+		return acc * PRIME1 + PRIME4;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * CoalescingStatusUpdater.java
+ * Part of JFSplit GUI
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.jfsplit.gui;
+
+import com.jfsplit.core.Status;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes status of a running process to the GUI on the event dispatch thread.
+ * The process thread only publishes its latest status, and a Swing
+ * <code>Timer</code> shows the latest published status at most a fixed number
+ * of times in a second. Statuses published in between are skipped, so the
+ * event dispatch thread is not flooded and the process thread never waits for
+ * repainting.
+ * 
+ * <pre>
+ * CoalescingStatusUpdater status_updater = new CoalescingStatusUpdater(10) {
+ * 	protected void showStatus(Status cur_status) {
+ * 		progress_bar.setValue(cur_status.getProgressValue());
+ * 	}
+ * };
+ * </pre>
+ */
+public abstract class CoalescingStatusUpdater implements ActionListener {
+
+	/**
+	 * Default number of times status is shown in a second
+	 */
+	public static final int DEFAULT_RATE = 10;
+
+	// latest status published, null if it is shown
+	private AtomicReference<Status> latest_status;
+	// timer showing the latest status
+	private Timer timer;
+
+	/**
+	 * Creates a status updater
+	 * 
+	 * @param rate
+	 *            Maximum number of times status is shown in a second
+	 */
+	public CoalescingStatusUpdater(int rate) {
+		latest_status = new AtomicReference<Status>();
+		timer = new Timer(1000 / Math.max(1, Math.min(1000, rate)), this);
+		timer.setCoalesce(true);
+	}
+
+	/**
+	 * Shows the status in the GUI, always called on the event dispatch thread
+	 * 
+	 * @param cur_status
+	 *            Latest <code>Status</code> of the process
+	 */
+	protected abstract void showStatus(Status cur_status);
+
+	/**
+	 * Publishes the latest status of the process, can be called from any
+	 * thread
+	 * 
+	 * @param cur_status
+	 *            <code>Status</code> of the process
+	 */
+	public void publish(Status cur_status) {
+		latest_status.set(cur_status);
+	}
+
+	/**
+	 * Starts showing published status, when a process is started
+	 */
+	public void start() {
+		latest_status.set(null);
+		timer.start();
+	}
+
+	/**
+	 * Stops showing status after showing the latest published status, when a
+	 * process is completed
+	 */
+	public void stop() {
+		timer.stop();
+		if (SwingUtilities.isEventDispatchThread()) {
+			showLatestStatus();
+		} else {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					showLatestStatus();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops showing status and discards the published status, when a process
+	 * is stopped or the GUI is reset
+	 */
+	public void cancel() {
+		timer.stop();
+		latest_status.set(null);
+	}
+
+	// shows the latest status if it is not shown already
+	private void showLatestStatus() {
+		Status cur_status = latest_status.getAndSet(null);
+		if (cur_status != null) {
+			showStatus(cur_status);
+		}
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		showLatestStatus();
+	}
+}
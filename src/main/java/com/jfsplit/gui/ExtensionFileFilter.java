@@ -80,10 +80,10 @@ public class ExtensionFileFilter extends FileFilter {
 					}
 				} else if (ext.equals("001...")) {
 					/*
-					 * support for extensions .001, .002, ... by specifying
-					 * 001... in the file filter
+					 * support for extensions .001, .002, ... (and .1000, ...
+					 * after 999 parts) by specifying 001... in the file filter
 					 */
-					if (path.matches(".*\\.[\\d]{3}")) {
+					if (path.matches(".*\\.[\\d]{3,}")) {
 						return true;
 					}
 				} else {
@@ -48,9 +48,13 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 	private JLabel lbl_elap_timestatus = new JLabel("Time Elapsed ");
 	private JLabel lbl_rem_timestatus = new JLabel("Estimated Time Remaining ",
 			JLabel.RIGHT);
+	private JLabel lbl_throughputstatus = new JLabel("Speed ");
 
 	private JTextField tf_srcpath = new JTextField();
-	private JTextField tf_checksum = new JTextField();
+	private JTextArea ta_checksum = new JTextArea(4, 0);
+
+	// check box for each checksum algorithm
+	private JCheckBox[] cb_algorithms;
 
 	private JProgressBar pb_checksum_status = new JProgressBar();
 
@@ -61,6 +65,42 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 
 	// FileProcess for calculating checksum
 	private FileProcess checksum_process;
+	// handle of the job running the process
+	private JobHandle job_handle;
+
+	/*
+	 * Shows status of the running process on the event dispatch thread, at
+	 * most DEFAULT_RATE times in a second
+	 */
+	private CoalescingStatusUpdater status_updater = new CoalescingStatusUpdater(
+			CoalescingStatusUpdater.DEFAULT_RATE) {
+		@Override
+		protected void showStatus(Status cur_status) {
+			/*
+			 * if process running then update the status of the process in
+			 * the gui
+			 */
+			if (checksum_process != null) {
+				// set progress bar value
+				pb_checksum_status.setValue(cur_status.getProgressValue());
+
+				// show and set various status
+				lbl_filestatus.setVisible(true);
+				lbl_sizestatus.setVisible(true);
+				lbl_elap_timestatus.setVisible(true);
+				lbl_rem_timestatus.setVisible(true);
+				lbl_throughputstatus.setVisible(true);
+
+				lbl_filestatus.setText(cur_status.getFileStatus());
+				lbl_sizestatus.setText(cur_status.getSizeStatus());
+				lbl_elap_timestatus.setText(cur_status.getElapTimeStatus());
+				lbl_rem_timestatus.setText(cur_status.getRemTimeStatus());
+				lbl_throughputstatus.setText(cur_status.getThroughputStatus());
+			}
+		}
+	};
+	// Algorithms of the checksums being calculated
+	private DigestAlgorithm[] selected_algorithms;
 
 	public FileChecksumPanel() {
 
@@ -80,12 +120,25 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 		panel_checksum_top.add(btn_srcbrowse);
 		panel_checksum.add(panel_checksum_top, "wrap");
 
+		JPanel panel_checksum_options = new JPanel(new MigLayout("inset 0 5"));
+		panel_checksum_options.setBorder(new TitledBorder("Checksum Options"));
+		DigestAlgorithm[] algorithms = DigestAlgorithm.values();
+		cb_algorithms = new JCheckBox[algorithms.length];
+		for (int i = 0; i < algorithms.length; i++) {
+			cb_algorithms[i] = new JCheckBox(algorithms[i].getName());
+			// four check boxes in a row
+			panel_checksum_options.add(cb_algorithms[i], (i % 4 == 3) ? "wrap"
+					: "");
+		}
+		cb_algorithms[0].setSelected(true);
+		panel_checksum.add(panel_checksum_options, "wrap");
+
 		JPanel panel_checksum_result = new JPanel(new MigLayout("inset 0 5",
 				"[]5[grow,fill]5[]"));
-		panel_checksum_result.add(new JLabel("CRC-32 Checksum : "),
-				"align label");
-		panel_checksum_result.add(tf_checksum);
-		panel_checksum_result.add(btn_copy);
+		panel_checksum_result.add(new JLabel("Checksums : "),
+				"align label, top");
+		panel_checksum_result.add(new JScrollPane(ta_checksum));
+		panel_checksum_result.add(btn_copy, "top");
 		panel_checksum.add(panel_checksum_result, "wrap");
 
 		JPanel panel_checksum_buttons = new JPanel(new MigLayout(
@@ -95,7 +148,7 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 		panel_checksum.add(panel_checksum_buttons, "wrap");
 
 		JPanel panel_checksum_span = new JPanel();
-		panel_checksum.add(panel_checksum_span, "height 270!,wrap");
+		panel_checksum.add(panel_checksum_span, "height 125!,wrap");
 
 		JPanel panel_checksum_status = new JPanel(new MigLayout(
 				"inset 0 5 0 4", "[grow,fill]"));
@@ -104,7 +157,8 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 		panel_checksum_status.add(lbl_sizestatus, "align label,push,wrap");
 		panel_checksum_status.add(pb_checksum_status, "wrap");
 		panel_checksum_status.add(lbl_elap_timestatus, "align label, split");
-		panel_checksum_status.add(lbl_rem_timestatus, "align label,push");
+		panel_checksum_status.add(lbl_rem_timestatus, "align label,push,wrap");
+		panel_checksum_status.add(lbl_throughputstatus, "align label");
 		panel_checksum.add(panel_checksum_status);
 
 		add(panel_checksum);
@@ -113,7 +167,7 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 
 		src_file = null;
 		tf_srcpath.setText("");
-		tf_checksum.setText("");
+		ta_checksum.setText("");
 		btn_copy.setEnabled(false);
 		btn_calculate.setEnabled(false);
 		lbl_filesize.setVisible(false);
@@ -132,7 +186,9 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 
 	// for reseting components to starting state
 	private void reset() {
+		status_updater.cancel();
 		checksum_process = null;
+		job_handle = null;
 
 		pb_checksum_status.setValue(0);
 
@@ -140,12 +196,21 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 		lbl_sizestatus.setVisible(false);
 		lbl_elap_timestatus.setVisible(false);
 		lbl_rem_timestatus.setVisible(false);
+		lbl_throughputstatus.setVisible(false);
 
 		tf_srcpath.setEditable(false);
-		tf_checksum.setEditable(false);
+		ta_checksum.setEditable(false);
 
 		btn_cancel.setEnabled(false);
 		btn_srcbrowse.setEnabled(true);
+		enableAlgorithms(true);
+	}
+
+	// enable or disable check boxes of algorithms
+	private void enableAlgorithms(boolean enable) {
+		for (int i = 0; i < cb_algorithms.length; i++) {
+			cb_algorithms[i].setEnabled(enable);
+		}
 	}
 
 	// show file select dialog and return selected file
@@ -163,24 +228,8 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 
 	@Override
 	public void updateStatus(Status cur_status) {
-		/*
-		 * if process running then update the status of the process in the gui
-		 */
-		if (checksum_process != null) {
-			// set progress bar value
-			pb_checksum_status.setValue(cur_status.getProgressValue());
-
-			// show and set various status
-			lbl_filestatus.setVisible(true);
-			lbl_sizestatus.setVisible(true);
-			lbl_elap_timestatus.setVisible(true);
-			lbl_rem_timestatus.setVisible(true);
-
-			lbl_filestatus.setText(cur_status.getFileStatus());
-			lbl_sizestatus.setText(cur_status.getSizeStatus());
-			lbl_elap_timestatus.setText(cur_status.getElapTimeStatus());
-			lbl_rem_timestatus.setText(cur_status.getRemTimeStatus());
-		}
+		// shown later on the event dispatch thread
+		status_updater.publish(cur_status);
 	}
 
 	@Override
@@ -192,20 +241,47 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 			return;
 		}
 
+		// find selected algorithms
+		DigestAlgorithm[] algorithms = DigestAlgorithm.values();
+		int selected_nos = 0;
+		for (int i = 0; i < cb_algorithms.length; i++) {
+			if (cb_algorithms[i].isSelected()) {
+				selected_nos++;
+			}
+		}
+		if (selected_nos == 0) {
+			showError("No checksum selected");
+			return;
+		}
+		selected_algorithms = new DigestAlgorithm[selected_nos];
+		for (int i = 0, j = 0; i < cb_algorithms.length; i++) {
+			if (cb_algorithms[i].isSelected()) {
+				selected_algorithms[j++] = algorithms[i];
+			}
+		}
+
 		// clear previous checksum
-		tf_checksum.setText("");
+		ta_checksum.setText("");
 
 		/*
-		 * start process for calculating checksum in a separate thread
+		 * start process for calculating checksum as a job of the
+		 * shared scheduler
 		 */
-		checksum_process = new FileChecksumProcess(this, src_file);
-		Thread process_thread = new Thread(checksum_process,
-				"File Checksum Process Thread");
-		process_thread.start();
+		FileChecksumProcess process = new FileChecksumProcess(this, src_file);
+		process.setAlgorithms(selected_algorithms);
+		checksum_process = process;
+		status_updater.start();
+		job_handle = JobScheduler.getDefault().submit(checksum_process);
+		// job waiting for other jobs is shown until its first status
+		if (!job_handle.isRunning() && !job_handle.isDone()) {
+			lbl_filestatus.setText("Queued");
+			lbl_filestatus.setVisible(true);
+		}
 
 		btn_calculate.setEnabled(false);
 		btn_cancel.setEnabled(true);
 		btn_srcbrowse.setEnabled(false);
+		enableAlgorithms(false);
 	}
 
 	@Override
@@ -224,8 +300,8 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 			}
 
 			// if ok and process running then stop it
-			if (checksum_process != null) {
-				checksum_process.forceStop();
+			if (job_handle != null) {
+				job_handle.cancel();
 			}
 			reset();
 
@@ -238,11 +314,39 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 	}
 
 	@Override
-	public void completed(Object[] result) {
+	public void completed(final Object[] result) {
+		// components are changed on the event dispatch thread
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					completed(result);
+				}
+			});
+			return;
+		}
+
+		// show the final status
+		status_updater.stop();
 
-		long checksum = (Long) result[0];
-		// set checksum (CRC-32 Hex value)
-		tf_checksum.setText(Long.toHexString(checksum).toUpperCase());
+		// no checksums if calculation failed, error is shown already
+		if (result == null) {
+			reset();
+			btn_calculate.setEnabled(true);
+			return;
+		}
+
+		// set checksums (Hex values) in order of selected algorithms
+		StringBuilder checksums = new StringBuilder();
+		for (int i = 0; i < result.length; i++) {
+			if (i > 0) {
+				checksums.append('\n');
+			}
+			checksums.append(selected_algorithms[i].getName()).append(" : ")
+					.append(result[i]);
+		}
+		ta_checksum.setText(checksums.toString());
+		ta_checksum.setCaretPosition(0);
 
 		// show confirmation message
 		String msg = "Checksum calculated";
@@ -255,7 +359,18 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 	}
 
 	@Override
-	public void showError(String errmsg) {
+	public void showError(final String errmsg) {
+		// error of the running process is shown on the event dispatch thread
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					showError(errmsg);
+				}
+			});
+			return;
+		}
+
 		// show error message
 		JOptionPane.showMessageDialog(this, errmsg, FileSplitterFrame.APP_TITLE
 				+ " - Error", JOptionPane.ERROR_MESSAGE);
@@ -273,7 +388,7 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 					showError("File not exists");
 					src_file = null;
 					tf_srcpath.setText("");
-					tf_checksum.setText("");
+					ta_checksum.setText("");
 					btn_calculate.setEnabled(false);
 					btn_copy.setEnabled(false);
 					lbl_filesize.setVisible(false);
@@ -292,7 +407,7 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 				btn_calculate.setEnabled(true);
 				btn_copy.setEnabled(false);
 
-				tf_checksum.setText("");
+				ta_checksum.setText("");
 			}
 		} else if (e.getSource() == btn_calculate) {
 			// start the process
@@ -302,8 +417,8 @@ public class FileChecksumPanel extends JPanel implements ActionListener,
 			stopProcess();
 		} else if (e.getSource() == btn_copy) {
 			// copy checksum to clipboard
-			tf_checksum.selectAll();
-			tf_checksum.copy();
+			ta_checksum.selectAll();
+			ta_checksum.copy();
 			String msg = "Checksum copied to clipboard";
 			JOptionPane.showMessageDialog(this, msg,
 					FileSplitterFrame.APP_TITLE,
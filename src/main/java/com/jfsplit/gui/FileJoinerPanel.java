@@ -26,13 +26,12 @@ import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.text.DecimalFormat;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Panel which contains required gui elements for file joiner
@@ -49,6 +48,7 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 	private JLabel lbl_elap_timestatus = new JLabel("Time Elapsed ");
 	private JLabel lbl_rem_timestatus = new JLabel("Estimated Time Remaining ",
 			JLabel.RIGHT);
+	private JLabel lbl_throughputstatus = new JLabel("Speed ");
 
 	private JTextField tf_firstsrc_path = new JTextField();
 	private JTextField tf_despath = new JTextField();
@@ -70,12 +70,20 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 
 	private JCheckBox cb_delete = new JCheckBox(
 			"Delete source Split Files after joining");
+	private JCheckBox cb_verify = new JCheckBox(
+			"Verify Split Files with checksum file");
+	private JCheckBox cb_resume = new JCheckBox(
+			"Resume interrupted joining");
+	private JCheckBox cb_consume = new JCheckBox(
+			"Consume Split Files (less disk space)");
 
 	private JTable table_files = new JTable();
-	private DefaultTableModel table_model;
-
 	// Source files in case of manual joining
-	private ArrayList<File> src_files = new ArrayList<File>();
+	private PartTableModel table_model = new PartTableModel();
+	// loads the split files found from a segment into the table
+	private SwingWorker<File[], Void> parts_loader;
+	// Source files of the running process, deleted after joining if selected
+	private File[] joined_files;
 	/*
 	 * Source file (any of the split file) in case of automatic joining
 	 */
@@ -85,6 +93,42 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 
 	// FileProcess for file joining
 	private FileProcess join_process;
+	// handle of the job running the process
+	private JobHandle job_handle;
+
+	/*
+	 * Shows status of the running process on the event dispatch thread, at
+	 * most DEFAULT_RATE times in a second
+	 */
+	private CoalescingStatusUpdater status_updater = new CoalescingStatusUpdater(
+			CoalescingStatusUpdater.DEFAULT_RATE) {
+		@Override
+		protected void showStatus(Status cur_status) {
+			/*
+			 * if process running then update the status of the process in
+			 * the gui
+			 */
+			if (join_process != null) {
+				// set progress bar value
+				pb_join_status.setValue(cur_status.getProgressValue());
+
+				// show and set various status
+				lbl_filestatus.setVisible(true);
+				lbl_sizestatus.setVisible(true);
+				lbl_elap_timestatus.setVisible(true);
+				lbl_rem_timestatus.setVisible(true);
+				lbl_throughputstatus.setVisible(true);
+
+				lbl_filestatus.setText(cur_status.getFileStatus());
+				lbl_sizestatus.setText(cur_status.getSizeStatus());
+				lbl_elap_timestatus.setText(cur_status.getElapTimeStatus());
+				lbl_rem_timestatus.setText(cur_status.getRemTimeStatus());
+				lbl_throughputstatus.setText(cur_status.getThroughputStatus());
+			}
+		}
+	};
+	// true if an error occurred while joining
+	private boolean join_failed;
 
 	public FileJoinerPanel() {
 
@@ -102,19 +146,9 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 		panel_join_top.add(btn_srcbrowse, "growx,wrap");
 		panel_join_top.add(new JLabel("Selected Files (For manual joining) :"),
 				"align label,wrap");
-		table_model = new DefaultTableModel(null, new String[] { "File Name",
-				"Path", "Size" }) {
-
-			private static final long serialVersionUID = -3113467772688015325L;
-
-			public boolean isCellEditable(int row, int column) {
-				// all cells false
-				return false;
-			}
-		};
 		table_files.setModel(table_model);
 		JScrollPane spane_table_files = new JScrollPane(table_files);
-		panel_join_top.add(spane_table_files, "height 150!");
+		panel_join_top.add(spane_table_files, "height 107!");
 
 		JPanel panel_join_top_table_right = new JPanel(new MigLayout("inset 0",
 				""));
@@ -137,11 +171,14 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 		rb_join_group.add(rb_autojoin);
 		rb_join_group.add(rb_manjoin);
 		panel_join_options_left.add(rb_autojoin, "wrap");
-		panel_join_options_left.add(rb_manjoin);
+		panel_join_options_left.add(rb_manjoin, "wrap");
+		panel_join_options_left.add(cb_consume);
 		panel_join_options.add(panel_join_options_left);
 
 		JPanel panel_join_options_right = new JPanel(new MigLayout("inset 0 5"));
-		panel_join_options_right.add(cb_delete);
+		panel_join_options_right.add(cb_delete, "wrap");
+		panel_join_options_right.add(cb_verify, "wrap");
+		panel_join_options_right.add(cb_resume);
 		panel_join_options.add(panel_join_options_right);
 
 		panel_join.add(panel_join_options, "wrap");
@@ -159,7 +196,8 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 		panel_join_status.add(lbl_sizestatus, "align label,push,wrap");
 		panel_join_status.add(pb_join_status, "wrap");
 		panel_join_status.add(lbl_elap_timestatus, "align label, split");
-		panel_join_status.add(lbl_rem_timestatus, "align label,push");
+		panel_join_status.add(lbl_rem_timestatus, "align label,push,wrap");
+		panel_join_status.add(lbl_throughputstatus, "align label");
 		panel_join.add(panel_join_status);
 
 		add(panel_join);
@@ -184,30 +222,35 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 
 	// for reseting components to starting state
 	private void reset() {
+		status_updater.cancel();
 
 		des_file = null;
 		join_process = null;
+		job_handle = null;
 
 		pb_join_status.setValue(0);
 
 		// clear table
-		if (!src_files.isEmpty()) {
-			src_files.clear();
-		}
-		int table_row_count = table_model.getRowCount();
-		for (int i = table_row_count - 1; i >= 0; i--) {
-			table_model.removeRow(i);
-		}
+		cancelPartsLoader();
+		table_model.clear();
+		joined_files = null;
 
 		lbl_filesize.setVisible(false);
 		lbl_filestatus.setVisible(false);
 		lbl_sizestatus.setVisible(false);
 		lbl_elap_timestatus.setVisible(false);
 		lbl_rem_timestatus.setVisible(false);
+		lbl_throughputstatus.setVisible(false);
 
 		rb_autojoin.setSelected(true);
 		cb_delete.setEnabled(true);
 		cb_delete.setSelected(false);
+		cb_verify.setEnabled(true);
+		cb_verify.setSelected(false);
+		cb_resume.setEnabled(true);
+		cb_resume.setSelected(false);
+		cb_consume.setEnabled(true);
+		cb_consume.setSelected(false);
 
 		tf_firstsrc_path.setEditable(false);
 		tf_despath.setEditable(false);
@@ -290,9 +333,11 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 			// browse for source file
 			String str_des = "Split Files (" + FileProcess.SPLIT_FILE_EXT
 					+ "1, " + FileProcess.SPLIT_FILE_EXT
-					+ "2, ... || 001, 002, ...)";
+					+ "2, ... || 001, 002, ... || aa || "
+					+ SplitManifest.MANIFEST_FILE_EXT + ")";
 			src_file = browseForFile(new File("."), true, new String[] {
-					FileProcess.SPLIT_FILE_EXT + "1...", "001..." }, str_des);
+					FileProcess.SPLIT_FILE_EXT + "1...", "001...", "aa",
+					SplitManifest.MANIFEST_FILE_EXT }, str_des);
 			if (src_file != null) {
 
 				// check whether selected file exists
@@ -300,7 +345,7 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 					showError("File not exists");
 					src_file = null;
 					tf_firstsrc_path.setText("");
-					if (src_files.isEmpty()) {
+					if (table_model.isEmpty()) {
 						btn_join.setEnabled(false);
 					}
 					return;
@@ -369,7 +414,7 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 							JOptionPane.QUESTION_MESSAGE);
 					if (option == JOptionPane.OK_OPTION) {
 						tf_despath.setText(des_file.getAbsolutePath());
-						if (src_file != null || !src_files.isEmpty()) {
+						if (src_file != null || !table_model.isEmpty()) {
 							// enable join button if source file(s) present
 							btn_join.setEnabled(true);
 						}
@@ -391,7 +436,7 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 					}
 
 					tf_despath.setText(des_file.getAbsolutePath());
-					if (src_file != null || !src_files.isEmpty()) {
+					if (src_file != null || !table_model.isEmpty()) {
 						// enable join button if source file(s) present
 						btn_join.setEnabled(true);
 					}
@@ -402,7 +447,7 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 			 * find other parts of file with selected segment
 			 */
 			if (src_file != null) {
-				findFilesFromSegment(true);
+				loadFilesFromSegment(false);
 			} else {
 				showError("No source file selected");
 			}
@@ -411,12 +456,16 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 			// adding files to table for manual joining
 			File[] selected_files = browseForFiles();
 			if (selected_files != null) {
-				// add all files to table
+				// add all existing files to table
+				ArrayList<File> files = new ArrayList<File>();
 				for (int i = 0; i < selected_files.length; i++) {
-					addToFileTable(selected_files[i], true);
+					if (selected_files[i].isFile()) {
+						files.add(selected_files[i]);
+					}
 				}
+				table_model.addFiles(files.toArray(new File[files.size()]));
 
-				if (!src_files.isEmpty() && des_file != null) {
+				if (!table_model.isEmpty() && des_file != null) {
 					btn_join.setEnabled(true);
 				}
 			}
@@ -430,12 +479,9 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 				return;
 			}
 
-			for (int i = 0; i < selected_rows.length; i++) {
-				table_model.removeRow(selected_rows[i] - i);
-				src_files.remove(selected_rows[i] - i);
-			}
+			table_model.removeRows(selected_rows);
 
-			if (src_files.isEmpty() && src_file == null) {
+			if (table_model.isEmpty() && src_file == null) {
 				btn_join.setEnabled(false);
 			}
 		} else if (e.getSource() == btn_join) {
@@ -448,127 +494,118 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 	}
 
 	/*
-	 * find other parts of file with selected segment
-	 * 
-	 * add_to_table is false then files found are not added to table but added
-	 * to source files ArrayList
+	 * find other parts of file with selected segment, split files of a
+	 * manifest are taken from it
 	 */
-	private void findFilesFromSegment(boolean add_to_table) {
-
-		// clear table
-		if (!src_files.isEmpty()) {
-			src_files.clear();
-		}
-
-		int table_row_count = table_model.getRowCount();
-		for (int i = table_row_count - 1; i >= 0; i--) {
-			table_model.removeRow(i);
+	private File[] findFilesFromSegment() throws IOException {
+		if (isManifestFile(src_file)) {
+			File[] part_files = SplitManifest.read(src_file).getPartFiles(
+					src_file.getParentFile());
+			// only the split files which exist
+			ArrayList<File> files = new ArrayList<File>();
+			for (int i = 0; i < part_files.length; i++) {
+				if (part_files[i].isFile()) {
+					files.add(part_files[i]);
+				}
+			}
+			return files.toArray(new File[files.size()]);
 		}
 
-		// get the folder of source file
-		File src_folder = src_file.getParentFile();
-
-		String src_filename = src_file.getName();
-		String src_fileext = src_filename.substring(src_filename
-				.lastIndexOf(".") + 1);
-		// find the filename without extension
-		String src_filename_withoutext = src_filename.substring(0,
-				src_filename.lastIndexOf(src_fileext) - 1);
+		// other parts are found by listing the folder once
+		return PartDiscovery.findParts(src_file);
+	}
 
-		// find which part of the target file is this source file
-		int cur_split_segment;
-		try {
-			cur_split_segment = Integer.parseInt(src_fileext);
-		} catch (NumberFormatException ex) {
-			cur_split_segment = Integer.parseInt(src_fileext.substring(3));
+	/*
+	 * find other parts of file with selected segment and show them in the
+	 * table, or join them if start_joining is true. The folder is read on a
+	 * worker thread so that the GUI is not blocked by folders of many files
+	 */
+	private void loadFilesFromSegment(final boolean start_joining) {
+		cancelPartsLoader();
+		btn_findfile.setEnabled(false);
+		if (start_joining) {
+			btn_join.setEnabled(false);
+		} else {
+			table_model.clear();
 		}
 
-		// for creating file extension line (001,002)
-		DecimalFormat formater = new DecimalFormat("000");
-
-		// find the first part available
-		// if its not the first part of the file
-		while (true) {
-			File new_src_file;
-			if (src_fileext.matches("[\\d]{3}")) {
-				new_src_file = new File(src_folder, src_filename_withoutext
-						+ "." + formater.format(--cur_split_segment));
-			} else {
-				new_src_file = new File(src_folder, src_filename_withoutext
-						+ "." + FileProcess.SPLIT_FILE_EXT
-						+ --cur_split_segment);
+		parts_loader = new SwingWorker<File[], Void>() {
+			@Override
+			protected File[] doInBackground() throws IOException {
+				return findFilesFromSegment();
 			}
 
-			if (!new_src_file.exists()) {
-				cur_split_segment++;
-				break;
+			@Override
+			protected void done() {
+				if (isCancelled()) {
+					return;
+				}
+				parts_loader = null;
+				btn_findfile.setEnabled(true);
+				if (start_joining) {
+					btn_join.setEnabled(true);
+				}
+				File[] found_files;
+				try {
+					found_files = get();
+				} catch (InterruptedException e) {
+					// not waiting, it is done
+					return;
+				} catch (ExecutionException e) {
+					showFindError(e.getCause());
+					return;
+				}
+				if (start_joining) {
+					startJoining(found_files, null);
+				} else {
+					table_model.addFiles(found_files);
+				}
 			}
-		}
+		};
+		parts_loader.execute();
+	}
 
-		// add all available file parts to table
-		while (true) {
-			File new_src_file;
-			if (src_fileext.matches("[\\d]{3}")) {
-				new_src_file = new File(src_folder, src_filename_withoutext
-						+ "." + formater.format(cur_split_segment++));
-			} else {
-				new_src_file = new File(src_folder, src_filename_withoutext
-						+ "." + FileProcess.SPLIT_FILE_EXT
-						+ cur_split_segment++);
-			}
+	// stop loading files into the table
+	private void cancelPartsLoader() {
+		if (parts_loader != null) {
+			parts_loader.cancel(true);
+			parts_loader = null;
+			btn_findfile.setEnabled(true);
+		}
+	}
 
-			if (!new_src_file.exists()) {
-				cur_split_segment--;
-				break;
-			} else {
-				addToFileTable(new_src_file, add_to_table);
-			}
+	// show error of finding other parts
+	private void showFindError(Throwable e) {
+		if (e instanceof IllegalArgumentException) {
+			showError(e.getMessage());
+		} else if (isManifestFile(src_file)) {
+			showError("Cannot read split manifest " + src_file.getName());
+		} else {
+			showError("Cannot read folder "
+					+ src_file.getParentFile().getName());
 		}
 	}
 
-	/*
-	 * add a file to table and source files ArrayList
-	 * 
-	 * add_to_table is false then files found are not added to table but added
-	 * to source files ArrayList
-	 */
-	private void addToFileTable(File file, boolean add_to_table) {
-		/*
-		 * check whether the file exists and is not a folder
-		 */
-		if (file.exists() && file.isFile()) {
-			if (!src_files.contains(file)) {
-				if (add_to_table) {
-					table_model.addRow(new String[] { file.getName(),
-							file.getAbsolutePath(),
-							FileOperations.getFileSizeStr(file.length()) });
-				}
-				// add to ArrayList
-				src_files.add(file);
-			}
+	// check whether the file is a split manifest
+	private boolean isManifestFile(File file) {
+		return file.getName().toLowerCase()
+				.endsWith("." + SplitManifest.MANIFEST_FILE_EXT);
+	}
+
+	// read the selected split manifest, null if it cannot be read
+	private SplitManifest readManifest() {
+		try {
+			return SplitManifest.read(src_file);
+		} catch (IOException e) {
+			showError("Cannot read split manifest " + src_file.getName());
+			return null;
 		}
 	}
 
 	@Override
 	public void updateStatus(Status cur_status) {
-		/*
-		 * if process running then update the status of the process in the gui
-		 */
-		if (join_process != null) {
-			// set progress bar value
-			pb_join_status.setValue(cur_status.getProgressValue());
-
-			// show and set various status
-			lbl_filestatus.setVisible(true);
-			lbl_sizestatus.setVisible(true);
-			lbl_elap_timestatus.setVisible(true);
-			lbl_rem_timestatus.setVisible(true);
-
-			lbl_filestatus.setText(cur_status.getFileStatus());
-			lbl_sizestatus.setText(cur_status.getSizeStatus());
-			lbl_elap_timestatus.setText(cur_status.getElapTimeStatus());
-			lbl_rem_timestatus.setText(cur_status.getRemTimeStatus());
-		}
+		// shown later on the event dispatch thread
+		status_updater.publish(cur_status);
 	}
 
 	@Override
@@ -576,38 +613,94 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 
 		/*
 		 * if automatic joining then find other parts of the file from the
-		 * selected segment
+		 * selected segment, joining is started after they are found
 		 */
 		if (rb_autojoin.isSelected()) {
-			if (src_file != null) {
-				findFilesFromSegment(false);
+			if (src_file != null && isManifestFile(src_file)) {
+				// split files and their sizes are taken from the manifest
+				SplitManifest manifest = readManifest();
+				if (manifest != null) {
+					startJoining(null, manifest);
+				}
+			} else if (src_file != null) {
+				loadFilesFromSegment(true);
 			} else {
 				showError("Source file not found");
-				return;
 			}
+			return;
 		}
+		startJoining(table_model.getFiles(), null);
+	}
+
+	/*
+	 * start joining the selected files, or the split files of the manifest
+	 * if it is not null
+	 */
+	private void startJoining(File[] selected_files, SplitManifest manifest) {
 
 		/*
 		 * check if there are some source files and a destination file
 		 */
-		if (src_files.isEmpty() || des_file == null) {
+		if ((manifest == null && (selected_files == null
+				|| selected_files.length == 0)) || des_file == null) {
 			showError("Required file(s) or folder doesn't exists");
 			return;
 		}
 
-		// convert ArrayList to an array
-		File[] selected_files = new File[src_files.size()];
-		for (int i = 0; i < src_files.size(); i++) {
-			selected_files[i] = src_files.get(i);
+		FileJoinProcess process;
+		if (manifest != null) {
+			selected_files = manifest.getPartFiles(src_file.getParentFile());
+			process = new FileJoinProcess(this, manifest,
+					src_file.getParentFile(), des_file);
+		} else {
+			process = new FileJoinProcess(this, selected_files, des_file);
+		}
+
+		if (cb_verify.isSelected() && manifest != null) {
+			// expected checksums are in the manifest
+			process.setChecksumSidecar(manifest.toChecksumSidecar());
+		} else if (cb_verify.isSelected()) {
+			/*
+			 * checksum file is named after the joined file, like the split
+			 * files without their extension
+			 */
+			String first_filename = selected_files[0].getName();
+			String joined_filename = (first_filename.lastIndexOf(".") > 0) ? first_filename
+					.substring(0, first_filename.lastIndexOf("."))
+					: first_filename;
+			File sidecar_file = ChecksumSidecar.getSidecarFile(
+					selected_files[0].getParentFile(), joined_filename);
+			if (!sidecar_file.exists()) {
+				showError("Checksum file " + sidecar_file.getName()
+						+ " not found");
+				return;
+			}
+			try {
+				process.setChecksumSidecar(ChecksumSidecar.read(sidecar_file));
+			} catch (IOException e) {
+				showError("Cannot read checksum file " + sidecar_file.getName());
+				return;
+			}
 		}
 
+		process.setResume(cb_resume.isSelected());
+		// split files are renamed and appended, then deleted
+		process.setConsumeParts(cb_consume.isSelected());
+
 		/*
-		 * start process for joining files in a separate thread
+		 * start process for joining files as a job of the
+		 * shared scheduler
 		 */
-		join_process = new FileJoinProcess(this, selected_files, des_file);
-		Thread process_thread = new Thread(join_process,
-				"File Joining Process Thread");
-		process_thread.start();
+		join_failed = false;
+		join_process = process;
+		joined_files = selected_files;
+		status_updater.start();
+		job_handle = JobScheduler.getDefault().submit(join_process);
+		// job waiting for other jobs is shown until its first status
+		if (!job_handle.isRunning() && !job_handle.isDone()) {
+			lbl_filestatus.setText("Queued");
+			lbl_filestatus.setVisible(true);
+		}
 
 		btn_join.setEnabled(false);
 		btn_cancel.setEnabled(true);
@@ -618,6 +711,9 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 		btn_remfile.setEnabled(false);
 
 		cb_delete.setEnabled(false);
+		cb_verify.setEnabled(false);
+		cb_resume.setEnabled(false);
+		cb_consume.setEnabled(false);
 	}
 
 	@Override
@@ -635,8 +731,8 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 			}
 
 			// if ok and process running then stop it
-			if (join_process != null) {
-				join_process.forceStop();
+			if (job_handle != null) {
+				job_handle.cancel();
 			}
 
 			reset();
@@ -645,10 +741,29 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 	}
 
 	@Override
-	public void completed(Object[] result) {
+	public void completed(final Object[] result) {
+		// components are changed on the event dispatch thread
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					completed(result);
+				}
+			});
+			return;
+		}
+
+		// show the final status
+		status_updater.stop();
 
 		// result is not needed in this case
 
+		// joined file is not complete, so keep the split files
+		if (join_failed) {
+			reset();
+			return;
+		}
+
 		/*
 		 * if Delete source Split Files checked then delete them
 		 */
@@ -666,17 +781,33 @@ public class FileJoinerPanel extends JPanel implements ActionListener,
 
 	// delete source files
 	private void deleteSourceFiles() {
-		Iterator<File> file_it = src_files.iterator();
-		while (file_it.hasNext()) {
-			File file = file_it.next();
-			if (file.exists()) {
-				file.delete();
+		if (joined_files == null) {
+			return;
+		}
+		for (int i = 0; i < joined_files.length; i++) {
+			if (joined_files[i].exists()) {
+				joined_files[i].delete();
 			}
 		}
 	}
 
 	@Override
-	public void showError(String errmsg) {
+	public void showError(final String errmsg) {
+		// error of the running process is shown on the event dispatch thread
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					showError(errmsg);
+				}
+			});
+			return;
+		}
+
+		// error from running process
+		if (join_process != null) {
+			join_failed = true;
+		}
 		// show error message
 		JOptionPane.showMessageDialog(this, errmsg, FileSplitterFrame.APP_TITLE
 				+ " - Error", JOptionPane.ERROR_MESSAGE);
@@ -29,6 +29,7 @@ import javax.swing.border.TitledBorder;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.util.BitSet;
 
 /**
  * Panel which contains required gui elements for file splitter
@@ -47,11 +48,13 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 	private JLabel lbl_elap_timestatus = new JLabel("Time Elapsed ");
 	private JLabel lbl_rem_timestatus = new JLabel("Estimated Time Remaining ",
 			JLabel.RIGHT);
+	private JLabel lbl_throughputstatus = new JLabel("Speed ");
 
 	private JTextField tf_srcpath = new JTextField();
 	private JTextField tf_despath = new JTextField();
 	private JTextField tf_partsize = new JTextField();
 	private JTextField tf_partnos = new JTextField();
+	private JTextField tf_selected_parts = new JTextField();
 
 	private JSpinner sp_spiltfirst_partnos = new JSpinner();
 	private JSpinner sp_spiltlast_partnos = new JSpinner();
@@ -67,6 +70,17 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 			"Split only the first :");
 	private JRadioButton rb_spiltlast = new JRadioButton(
 			"Split only the last :");
+	private JRadioButton rb_spiltselected = new JRadioButton(
+			"Split only the parts :");
+
+	private JCheckBox cb_checksums = new JCheckBox(
+			"Create checksum file (CRC-32 of each part)");
+	private JCheckBox cb_manifest = new JCheckBox(
+			"Create split manifest (for joining without searching parts)");
+	private JCheckBox cb_resume = new JCheckBox(
+			"Resume interrupted splitting (create only missing parts)");
+	private JCheckBox cb_inplace = new JCheckBox(
+			"Split in place (source file becomes the parts, less disk space)");
 
 	private JProgressBar pb_split_status = new JProgressBar();
 
@@ -82,6 +96,40 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 
 	// FileProcess for file splitting
 	private FileProcess split_process;
+	// handle of the job running the process
+	private JobHandle job_handle;
+
+	/*
+	 * Shows status of the running process on the event dispatch thread, at
+	 * most DEFAULT_RATE times in a second
+	 */
+	private CoalescingStatusUpdater status_updater = new CoalescingStatusUpdater(
+			CoalescingStatusUpdater.DEFAULT_RATE) {
+		@Override
+		protected void showStatus(Status cur_status) {
+			/*
+			 * if process running then update the status of the process in
+			 * the gui
+			 */
+			if (split_process != null) {
+				// set progress bar value
+				pb_split_status.setValue(cur_status.getProgressValue());
+
+				// show and set various status
+				lbl_filestatus.setVisible(true);
+				lbl_sizestatus.setVisible(true);
+				lbl_elap_timestatus.setVisible(true);
+				lbl_rem_timestatus.setVisible(true);
+				lbl_throughputstatus.setVisible(true);
+
+				lbl_filestatus.setText(cur_status.getFileStatus());
+				lbl_sizestatus.setText(cur_status.getSizeStatus());
+				lbl_elap_timestatus.setText(cur_status.getElapTimeStatus());
+				lbl_rem_timestatus.setText(cur_status.getRemTimeStatus());
+				lbl_throughputstatus.setText(cur_status.getThroughputStatus());
+			}
+		}
+	};
 
 	public FileSplitterPanel() {
 
@@ -126,6 +174,7 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 		rb_splitskip_group.add(rb_spiltall);
 		rb_splitskip_group.add(rb_spiltfirst);
 		rb_splitskip_group.add(rb_spiltlast);
+		rb_splitskip_group.add(rb_spiltselected);
 		panel_split_options_right.add(rb_spiltall, "wrap");
 		panel_split_options_right.add(rb_spiltfirst);
 		panel_split_options_right.add(sp_spiltfirst_partnos, "width 90!");
@@ -133,8 +182,17 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 				.add(new JLabel("part(s)"), "align label,wrap");
 		panel_split_options_right.add(rb_spiltlast);
 		panel_split_options_right.add(sp_spiltlast_partnos, "width 90!");
-		panel_split_options_right.add(new JLabel("part(s)"), "align label");
+		panel_split_options_right
+				.add(new JLabel("part(s)"), "align label,wrap");
+		panel_split_options_right.add(rb_spiltselected);
+		panel_split_options_right.add(tf_selected_parts, "width 90!");
+		panel_split_options_right.add(new JLabel("(like 2,5-7)"),
+				"align label");
 		panel_split_options.add(panel_split_options_right);
+		panel_split_options.add(cb_checksums, "newline, span, gapleft 5");
+		panel_split_options.add(cb_manifest, "newline, span, gapleft 5");
+		panel_split_options.add(cb_resume, "newline, span, gapleft 5");
+		panel_split_options.add(cb_inplace, "newline, span, gapleft 5");
 
 		panel_split.add(panel_split_options, "wrap");
 
@@ -145,7 +203,7 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 		panel_split.add(panel_split_buttons, "wrap");
 
 		JPanel panel_split_span = new JPanel();
-		panel_split.add(panel_split_span, "height 141!,wrap");
+		panel_split.add(panel_split_span, "height 52!,wrap");
 
 		JPanel panel_split_status = new JPanel(new MigLayout("inset 0 5 0 4",
 				"[grow,fill]"));
@@ -154,7 +212,8 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 		panel_split_status.add(lbl_sizestatus, "align label,push,wrap");
 		panel_split_status.add(pb_split_status, "wrap");
 		panel_split_status.add(lbl_elap_timestatus, "align label, split");
-		panel_split_status.add(lbl_rem_timestatus, "align label,push");
+		panel_split_status.add(lbl_rem_timestatus, "align label,push,wrap");
+		panel_split_status.add(lbl_throughputstatus, "align label");
 		panel_split.add(panel_split_status);
 
 		add(panel_split);
@@ -172,6 +231,7 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 		rb_spiltall.addActionListener(this);
 		rb_spiltfirst.addActionListener(this);
 		rb_spiltlast.addActionListener(this);
+		rb_spiltselected.addActionListener(this);
 
 		btn_srcbrowse.addActionListener(this);
 		btn_desbrowse.addActionListener(this);
@@ -181,16 +241,19 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 
 	// for reseting components to starting state
 	private void reset() {
+		status_updater.cancel();
 
 		src_file = null;
 		des_folder = null;
 		split_process = null;
+		job_handle = null;
 
 		cb_sizeunits.setSelectedIndex(0);
 		pb_split_status.setValue(0);
 
 		sp_spiltfirst_partnos.setValue(0);
 		sp_spiltlast_partnos.setValue(0);
+		tf_selected_parts.setText("");
 
 		lbl_filesize.setVisible(false);
 		lbl_outputfile.setVisible(false);
@@ -198,11 +261,20 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 		lbl_sizestatus.setVisible(false);
 		lbl_elap_timestatus.setVisible(false);
 		lbl_rem_timestatus.setVisible(false);
+		lbl_throughputstatus.setVisible(false);
 
 		cb_sizeunits.setEditable(false);
 
 		rb_spiltbysize.setSelected(true);
 		rb_spiltall.setSelected(true);
+		cb_checksums.setSelected(false);
+		cb_checksums.setEnabled(true);
+		cb_manifest.setSelected(false);
+		cb_manifest.setEnabled(true);
+		cb_resume.setSelected(false);
+		cb_resume.setEnabled(true);
+		cb_inplace.setSelected(false);
+		cb_inplace.setEnabled(true);
 
 		tf_srcpath.setEditable(false);
 		tf_despath.setEditable(false);
@@ -251,16 +323,9 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 
 	// disable and enable components when second option changed
 	private void secondOptionSelected() {
-		if (rb_spiltall.isSelected()) {
-			sp_spiltfirst_partnos.setEnabled(false);
-			sp_spiltlast_partnos.setEnabled(false);
-		} else if (rb_spiltfirst.isSelected()) {
-			sp_spiltfirst_partnos.setEnabled(true);
-			sp_spiltlast_partnos.setEnabled(false);
-		} else if (rb_spiltlast.isSelected()) {
-			sp_spiltfirst_partnos.setEnabled(false);
-			sp_spiltlast_partnos.setEnabled(true);
-		}
+		sp_spiltfirst_partnos.setEnabled(rb_spiltfirst.isSelected());
+		sp_spiltlast_partnos.setEnabled(rb_spiltlast.isSelected());
+		tf_selected_parts.setEnabled(rb_spiltselected.isSelected());
 	}
 
 	/*
@@ -295,6 +360,8 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 		int part_nos = 0;
 		int skip_first_nos = 0;
 		int skip_last_nos = 0;
+		// parts split if only some of them are selected
+		BitSet selected_parts = null;
 
 		// check whether there is a source file and destination folder
 		if (src_file == null || des_folder == null) {
@@ -302,6 +369,12 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 			return;
 		}
 
+		// part size should not change when splitting in place is resumed
+		if (cb_inplace.isSelected() && !rb_spiltbysize.isSelected()) {
+			showError("Split by size when splitting in place");
+			return;
+		}
+
 		if (rb_spiltbysize.isSelected()) {
 			// split by size
 			try {
@@ -339,6 +412,12 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 				showError(errmsg);
 				return;
 			}
+			// an empty file can not be divided into parts
+			if (src_file.length() == 0) {
+				String errmsg = "Source file is empty";
+				showError(errmsg);
+				return;
+			}
 			// calculating size of each part
 			part_size = ((src_file.length() % part_nos) == 0) ? (src_file.length() / part_nos) : (src_file.length() / part_nos) + 1;
 		}
@@ -379,22 +458,65 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 			 * first
 			 */
 			skip_first_nos = part_nos - split_last_nos;
+
+		} else if (rb_spiltselected.isSelected()) {
+
+			// if split only some parts from anywhere
+			try {
+				selected_parts = FileSplitProcess
+						.parsePartRanges(tf_selected_parts.getText());
+			} catch (IllegalArgumentException e) {
+				selected_parts = null;
+			}
+			if (selected_parts == null || selected_parts.isEmpty()) {
+				String errmsg = "Invalid parts in skipping option";
+				showError(errmsg);
+				return;
+			}
+		}
+
+		// source file is not kept when splitting in place
+		if (cb_inplace.isSelected()) {
+			int option = JOptionPane.showConfirmDialog(this,
+					"Source file will be replaced by its split files. Continue ?",
+					FileSplitterFrame.APP_TITLE, JOptionPane.OK_CANCEL_OPTION,
+					JOptionPane.WARNING_MESSAGE);
+			if (option != JOptionPane.OK_OPTION) {
+				return;
+			}
 		}
 
 		/*
-		 * start process for splitting files in a separate thread
+		 * start process for splitting files as a job of the
+		 * shared scheduler
 		 */
-		split_process = new FileSplitProcess(this, src_file, des_folder,
-				part_size, part_nos, skip_first_nos, skip_last_nos);
-
-		Thread process_thread = new Thread(split_process,
-				"File Splitting Process Thread");
-		process_thread.start();
+		FileSplitProcess process = new FileSplitProcess(this, src_file,
+				des_folder, part_size, part_nos, skip_first_nos, skip_last_nos);
+		if (cb_checksums.isSelected()) {
+			process.setChecksumAlgorithms(new DigestAlgorithm[] { DigestAlgorithm.CRC32 });
+		}
+		process.setWriteManifest(cb_manifest.isSelected());
+		process.setResume(cb_resume.isSelected());
+		process.setSplitInPlace(cb_inplace.isSelected());
+		process.setSelectedParts(selected_parts);
+		split_process = process;
+
+		status_updater.start();
+		job_handle = JobScheduler.getDefault().submit(split_process);
+		// job waiting for other jobs is shown until its first status
+		if (!job_handle.isRunning() && !job_handle.isDone()) {
+			lbl_filestatus.setText("Queued");
+			lbl_filestatus.setVisible(true);
+		}
 
 		btn_split.setEnabled(false);
 		btn_cancel.setEnabled(true);
 		btn_srcbrowse.setEnabled(false);
 		btn_desbrowse.setEnabled(false);
+		cb_checksums.setEnabled(false);
+		cb_manifest.setEnabled(false);
+		cb_resume.setEnabled(false);
+		cb_inplace.setEnabled(false);
 	}
 
 	@Override
@@ -412,8 +534,8 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 			}
 
 			// if ok and process running then stop it
-			if (split_process != null) {
-				split_process.forceStop();
+			if (job_handle != null) {
+				job_handle.cancel();
 			}
 
 			reset();
@@ -423,28 +545,25 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 
 	@Override
 	public void updateStatus(Status cur_status) {
-		/*
-		 * if process running then update the status of the process in the gui
-		 */
-		if (split_process != null) {
-			// set progress bar value
-			pb_split_status.setValue(cur_status.getProgressValue());
-
-			// show and set various status
-			lbl_filestatus.setVisible(true);
-			lbl_sizestatus.setVisible(true);
-			lbl_elap_timestatus.setVisible(true);
-			lbl_rem_timestatus.setVisible(true);
-
-			lbl_filestatus.setText(cur_status.getFileStatus());
-			lbl_sizestatus.setText(cur_status.getSizeStatus());
-			lbl_elap_timestatus.setText(cur_status.getElapTimeStatus());
-			lbl_rem_timestatus.setText(cur_status.getRemTimeStatus());
-		}
+		// shown later on the event dispatch thread
+		status_updater.publish(cur_status);
 	}
 
 	@Override
-	public void completed(Object[] result) {
+	public void completed(final Object[] result) {
+		// components are changed on the event dispatch thread
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					completed(result);
+				}
+			});
+			return;
+		}
+
+		// show the final status
+		status_updater.stop();
 
 		// result is not needed in this case
 
@@ -456,7 +575,18 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 	}
 
 	@Override
-	public void showError(String errmsg) {
+	public void showError(final String errmsg) {
+		// error of the running process is shown on the event dispatch thread
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					showError(errmsg);
+				}
+			});
+			return;
+		}
+
 		// show error message
 		JOptionPane.showMessageDialog(this, errmsg, FileSplitterFrame.APP_TITLE
 				+ " - Error", JOptionPane.ERROR_MESSAGE);
@@ -469,7 +599,8 @@ public class FileSplitterPanel extends JPanel implements ActionListener,
 			firstOptionSelected();
 		} else if (e.getSource() == rb_spiltall
 				|| e.getSource() == rb_spiltfirst
-				|| e.getSource() == rb_spiltlast) {
+				|| e.getSource() == rb_spiltlast
+				|| e.getSource() == rb_spiltselected) {
 			// second option is changed
 			secondOptionSelected();
 		} else if (e.getSource() == btn_srcbrowse) {
@@ -0,0 +1,187 @@
+/*
+ * PartTableModel.java
+ * Part of JFSplit GUI
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.jfsplit.gui;
+
+import com.jfsplit.core.FileOperations;
+
+import javax.swing.table.AbstractTableModel;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Table model of the split files selected for joining. Paths and sizes of the
+ * files are kept in arrays and a row is turned into cells only when it is
+ * shown, so tables of many thousands of split files are filled quickly. Size
+ * of a file is read when its row is first shown. A file is added only once,
+ * checked with a hash set of the paths.
+ */
+public class PartTableModel extends AbstractTableModel {
+
+	private static final long serialVersionUID = 4209357317815446312L;
+
+	private static final String[] COLUMN_NAMES = { "File Name", "Path",
+			"Size" };
+
+	// size of a file not read yet
+	private static final long UNKNOWN_SIZE = -1;
+
+	// absolute paths of the files in the order of rows
+	private String[] paths;
+	// sizes of the files, UNKNOWN_SIZE until shown
+	private long[] sizes;
+	// number of files
+	private int row_count;
+	// paths of the files, to add a file only once
+	private HashSet<String> path_set;
+
+	public PartTableModel() {
+		paths = new String[16];
+		sizes = new long[16];
+		row_count = 0;
+		path_set = new HashSet<String>();
+	}
+
+	/**
+	 * Adds files which are not in the table, in one update of the table
+	 * 
+	 * @param files
+	 *            Files to be added
+	 * @return Number of files added
+	 */
+	public int addFiles(File[] files) {
+		int first_row = row_count;
+		for (int i = 0; i < files.length; i++) {
+			String path = files[i].getAbsolutePath();
+			if (!path_set.add(path)) {
+				continue;
+			}
+			if (row_count == paths.length) {
+				int capacity = Math.max(row_count * 2, row_count + files.length
+						- i);
+				paths = Arrays.copyOf(paths, capacity);
+				sizes = Arrays.copyOf(sizes, capacity);
+			}
+			paths[row_count] = path;
+			sizes[row_count] = UNKNOWN_SIZE;
+			row_count++;
+		}
+		if (row_count > first_row) {
+			fireTableRowsInserted(first_row, row_count - 1);
+		}
+		return row_count - first_row;
+	}
+
+	/**
+	 * Removes rows of the table
+	 * 
+	 * @param rows
+	 *            Indexes of the rows in ascending order
+	 */
+	public void removeRows(int[] rows) {
+		if (rows.length == 0) {
+			return;
+		}
+		// move the remaining rows up over the removed ones
+		int new_count = 0;
+		int next_removed = 0;
+		for (int i = 0; i < row_count; i++) {
+			if (next_removed < rows.length && rows[next_removed] == i) {
+				path_set.remove(paths[i]);
+				next_removed++;
+			} else {
+				paths[new_count] = paths[i];
+				sizes[new_count] = sizes[i];
+				new_count++;
+			}
+		}
+		Arrays.fill(paths, new_count, row_count, null);
+		row_count = new_count;
+		fireTableDataChanged();
+	}
+
+	/**
+	 * Removes all rows
+	 */
+	public void clear() {
+		if (row_count == 0) {
+			return;
+		}
+		paths = new String[16];
+		sizes = new long[16];
+		row_count = 0;
+		path_set.clear();
+		fireTableDataChanged();
+	}
+
+	/**
+	 * Checks whether the table has no files
+	 * 
+	 * @return true if empty
+	 */
+	public boolean isEmpty() {
+		return row_count == 0;
+	}
+
+	/**
+	 * Files in the order of rows
+	 * 
+	 * @return Array of files
+	 */
+	public File[] getFiles() {
+		File[] files = new File[row_count];
+		for (int i = 0; i < row_count; i++) {
+			files[i] = new File(paths[i]);
+		}
+		return files;
+	}
+
+	@Override
+	public int getRowCount() {
+		return row_count;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return COLUMN_NAMES.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return COLUMN_NAMES[column];
+	}
+
+	@Override
+	public Object getValueAt(int row, int column) {
+		String path = paths[row];
+		if (column == 0) {
+			return path.substring(path.lastIndexOf(File.separatorChar) + 1);
+		} else if (column == 1) {
+			return path;
+		}
+		// size is read once, when the row is first shown
+		if (sizes[row] == UNKNOWN_SIZE) {
+			sizes[row] = new File(path).length();
+		}
+		return FileOperations.getFileSizeStr(sizes[row]);
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * FileJoinProcessConsumeTest.java
+ * A test of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a joining which consumes split files is continued after it is
+ * interrupted, without losing the bytes already appended to the destination
+ * file.
+ */
+public class FileJoinProcessConsumeTest {
+
+	private static final int PART_SIZE = 65536;
+	private static final int PART_NOS = 12;
+	// split file whose checksum is wrong in the interrupted joining
+	private static final int FAILING_PART = 5;
+
+	@TempDir
+	Path folder;
+
+	// ProcessCaller recording the first error
+	private static class RecordingCaller implements ProcessCaller {
+		String error;
+		boolean completed;
+
+		@Override
+		public void startProcess() {
+		}
+
+		@Override
+		public boolean stopProcess() {
+			return true;
+		}
+
+		@Override
+		public void updateStatus(Status cur_status) {
+		}
+
+		@Override
+		public void completed(Object[] result) {
+			completed = true;
+		}
+
+		@Override
+		public void showError(String errmsg) {
+			if (error == null) {
+				error = errmsg;
+			}
+		}
+	}
+
+	// splits random bytes into the split files of big.bin
+	private byte[] splitSource() throws IOException {
+		byte[] data = new byte[PART_SIZE * PART_NOS - 100];
+		new Random(21).nextBytes(data);
+		File source_file = folder.resolve("big.bin").toFile();
+		Files.write(source_file.toPath(), data);
+
+		RecordingCaller caller = new RecordingCaller();
+		FileSplitProcess split_process = new FileSplitProcess(caller,
+				source_file, folder.toFile(), PART_SIZE, PART_NOS, 0, 0);
+		split_process
+				.setChecksumAlgorithms(new DigestAlgorithm[] { DigestAlgorithm.CRC32 });
+		split_process.run();
+		assertNull(caller.error);
+		assertTrue(source_file.delete());
+		return data;
+	}
+
+	private File getPartFile(int number) {
+		return folder.resolve("big.bin.jfs" + number).toFile();
+	}
+
+	private File getDestFile() {
+		return folder.resolve("big.bin").toFile();
+	}
+
+	/*
+	 * Joins by consuming until a split file does not match its checksum, which
+	 * leaves the same files as stopping the JVM after the split file before it
+	 */
+	private void interruptJoining() throws IOException {
+		ChecksumSidecar sidecar = new ChecksumSidecar();
+		sidecar.put(getPartFile(FAILING_PART).getName(),
+				DigestAlgorithm.CRC32, "00000000");
+
+		RecordingCaller caller = new RecordingCaller();
+		FileJoinProcess join_process = new FileJoinProcess(caller,
+				PartDiscovery.findParts(getPartFile(1)), getDestFile());
+		join_process.setConsumeParts(true);
+		join_process.setChecksumSidecar(sidecar);
+		join_process.run();
+
+		assertNotNull(caller.error);
+		assertFalse(getPartFile(1).exists());
+		assertTrue(getPartFile(FAILING_PART).exists());
+		assertEquals((long) PART_SIZE * (FAILING_PART - 1), getDestFile()
+				.length());
+		assertTrue(CheckpointJournal.getJournalFile(getDestFile()).exists());
+	}
+
+	// joins by consuming the split files found from a split file
+	private RecordingCaller resumeJoining(File part_file) throws IOException {
+		File[] source_files = part_file.exists() ? PartDiscovery
+				.findParts(part_file) : new File[0];
+		RecordingCaller caller = new RecordingCaller();
+		FileJoinProcess join_process = new FileJoinProcess(caller,
+				source_files, getDestFile());
+		join_process.setConsumeParts(true);
+		join_process.run();
+		return caller;
+	}
+
+	private void assertJoined(byte[] data, RecordingCaller caller)
+			throws IOException {
+		assertNull(caller.error);
+		assertTrue(caller.completed);
+		assertArrayEquals(data, Files.readAllBytes(getDestFile().toPath()));
+		for (int i = 1; i <= PART_NOS; i++) {
+			assertFalse(getPartFile(i).exists());
+		}
+		assertFalse(CheckpointJournal.getJournalFile(getDestFile()).exists());
+	}
+
+	@Test
+	public void resumesFromLaterSplitFile() throws IOException {
+		byte[] data = splitSource();
+		interruptJoining();
+		assertJoined(data, resumeJoining(getPartFile(FAILING_PART + 3)));
+	}
+
+	@Test
+	public void resumesWhenFirstSplitFileIsRenamed() throws IOException {
+		byte[] data = splitSource();
+		interruptJoining();
+		assertJoined(data, resumeJoining(getPartFile(1)));
+	}
+
+	@Test
+	public void doesNotAppendSplitFileLeftAfterAppending() throws IOException {
+		byte[] data = splitSource();
+		interruptJoining();
+		// JVM stopped after recording a split file, before deleting it
+		int appended_part = FAILING_PART - 1;
+		Files.write(getPartFile(appended_part).toPath(), Arrays.copyOfRange(
+				data, PART_SIZE * (appended_part - 1), PART_SIZE
+						* appended_part));
+		assertJoined(data, resumeJoining(getPartFile(appended_part)));
+	}
+
+	@Test
+	public void keepsDestinationWhenJoinedWithoutConsuming()
+			throws IOException {
+		splitSource();
+		interruptJoining();
+		long dest_length = getDestFile().length();
+
+		RecordingCaller caller = new RecordingCaller();
+		FileJoinProcess join_process = new FileJoinProcess(caller,
+				PartDiscovery.findParts(getPartFile(FAILING_PART)),
+				getDestFile());
+		join_process.run();
+
+		assertNotNull(caller.error);
+		assertEquals(dest_length, getDestFile().length());
+	}
+
+	@Test
+	public void deletesJournalWhenFirstSplitFileDoesNotMatch()
+			throws IOException {
+		byte[] data = splitSource();
+		ChecksumSidecar sidecar = new ChecksumSidecar();
+		sidecar.put(getPartFile(1).getName(), DigestAlgorithm.CRC32,
+				"00000000");
+
+		RecordingCaller caller = new RecordingCaller();
+		FileJoinProcess join_process = new FileJoinProcess(caller,
+				PartDiscovery.findParts(getPartFile(1)), getDestFile());
+		join_process.setConsumeParts(true);
+		join_process.setChecksumSidecar(sidecar);
+		join_process.run();
+
+		assertNotNull(caller.error);
+		assertTrue(getPartFile(1).exists());
+		assertFalse(CheckpointJournal.getJournalFile(getDestFile()).exists());
+
+		// split files are joined without consuming
+		caller = new RecordingCaller();
+		join_process = new FileJoinProcess(caller,
+				PartDiscovery.findParts(getPartFile(1)), getDestFile());
+		join_process.run();
+
+		assertNull(caller.error);
+		assertArrayEquals(data, Files.readAllBytes(getDestFile().toPath()));
+	}
+}
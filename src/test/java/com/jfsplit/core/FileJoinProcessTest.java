@@ -0,0 +1,212 @@
+/*
+ * FileJoinProcessTest.java
+ * A test of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a joining which fails does not leave a destination file which
+ * looks joined.
+ */
+public class FileJoinProcessTest {
+
+	private static final int PART_SIZE = 65536;
+	private static final int PART_NOS = 8;
+
+	@TempDir
+	Path folder;
+
+	// ProcessCaller recording the first error
+	private static class RecordingCaller implements ProcessCaller {
+		String error;
+		boolean completed;
+
+		@Override
+		public void startProcess() {
+		}
+
+		@Override
+		public boolean stopProcess() {
+			return true;
+		}
+
+		@Override
+		public void updateStatus(Status cur_status) {
+		}
+
+		@Override
+		public void completed(Object[] result) {
+			completed = true;
+		}
+
+		@Override
+		public void showError(String errmsg) {
+			if (error == null) {
+				error = errmsg;
+			}
+		}
+	}
+
+	// splits random bytes into the split files of big.bin with a manifest
+	private byte[] splitSource() throws IOException {
+		byte[] data = new byte[PART_SIZE * PART_NOS - 100];
+		new Random(8).nextBytes(data);
+		File source_file = folder.resolve("big.bin").toFile();
+		Files.write(source_file.toPath(), data);
+
+		RecordingCaller caller = new RecordingCaller();
+		FileSplitProcess split_process = new FileSplitProcess(caller,
+				source_file, folder.toFile(), PART_SIZE, PART_NOS, 0, 0);
+		split_process.setWriteManifest(true);
+		split_process.run();
+		assertNull(caller.error);
+		assertTrue(source_file.delete());
+		return data;
+	}
+
+	private File getPartFile(int number) {
+		return folder.resolve("big.bin.jfs" + number).toFile();
+	}
+
+	private File getDestFile() {
+		return folder.resolve("joined.bin").toFile();
+	}
+
+	// sidecar with the CRC-32 of the split files, wrong for one of them
+	private ChecksumSidecar newSidecar(int wrong_part) throws IOException {
+		ChecksumSidecar sidecar = new ChecksumSidecar();
+		for (int i = 1; i <= PART_NOS; i++) {
+			FileDigest digest = DigestAlgorithm.CRC32.newDigest();
+			byte[] bytes = Files.readAllBytes(getPartFile(i).toPath());
+			digest.update(ByteBuffer.wrap(bytes));
+			FileDigest[] digests = { digest };
+			sidecar.put(getPartFile(i).getName(), digests);
+		}
+		if (wrong_part > 0) {
+			sidecar.put(getPartFile(wrong_part).getName(),
+					DigestAlgorithm.CRC32, "00000000");
+		}
+		return sidecar;
+	}
+
+	private FileJoinProcess newJoinProcess(RecordingCaller caller)
+			throws IOException {
+		SplitManifest manifest = SplitManifest.read(SplitManifest
+				.getManifestFile(folder.toFile(), "big.bin"));
+		return new FileJoinProcess(caller, manifest, folder.toFile(),
+				getDestFile());
+	}
+
+	@Test
+	public void deletesDestinationWhenSplitFileDoesNotMatchChecksum()
+			throws IOException {
+		splitSource();
+		RecordingCaller caller = new RecordingCaller();
+		FileJoinProcess join_process = newJoinProcess(caller);
+		join_process.setThreadNos(2);
+		join_process.setChecksumSidecar(newSidecar(PART_NOS - 1));
+		join_process.run();
+
+		assertNotNull(caller.error);
+		assertFalse(getDestFile().exists());
+	}
+
+	@Test
+	public void deletesDestinationWhenSplitFileIsMissing() throws IOException {
+		splitSource();
+		assertTrue(getPartFile(3).delete());
+		RecordingCaller caller = new RecordingCaller();
+		newJoinProcess(caller).run();
+
+		assertNotNull(caller.error);
+		assertFalse(getDestFile().exists());
+	}
+
+	@Test
+	public void reportsSplitFileLongerThanInManifest() throws IOException {
+		splitSource();
+		Files.write(getPartFile(3).toPath(), new byte[] { 1 },
+				StandardOpenOption.APPEND);
+		RecordingCaller caller = new RecordingCaller();
+		newJoinProcess(caller).run();
+
+		assertEquals("Error during joining.\n" + getPartFile(3).getName()
+				+ " does not match the manifest", caller.error);
+		assertFalse(getDestFile().exists());
+	}
+
+	@Test
+	public void deletesResumableDestinationWithoutCopiedBytes()
+			throws IOException {
+		splitSource();
+		RecordingCaller caller = new RecordingCaller();
+		FileJoinProcess join_process = newJoinProcess(caller);
+		join_process.setResume(true);
+		join_process.setChecksumSidecar(newSidecar(1));
+		join_process.run();
+
+		assertNotNull(caller.error);
+		assertFalse(getDestFile().exists());
+		assertFalse(CheckpointJournal.getJournalFile(getDestFile()).exists());
+	}
+
+	@Test
+	public void keepsResumableDestinationWithCopiedBytes() throws IOException {
+		byte[] data = splitSource();
+		RecordingCaller caller = new RecordingCaller();
+		FileJoinProcess join_process = newJoinProcess(caller);
+		join_process.setResume(true);
+		join_process.setChecksumSidecar(newSidecar(PART_NOS));
+		join_process.run();
+
+		assertNotNull(caller.error);
+		assertTrue(getDestFile().exists());
+		assertTrue(CheckpointJournal.getJournalFile(getDestFile()).exists());
+
+		// joined after the split file is replaced
+		caller = new RecordingCaller();
+		join_process = newJoinProcess(caller);
+		join_process.setResume(true);
+		join_process.setChecksumSidecar(newSidecar(0));
+		join_process.run();
+
+		assertNull(caller.error);
+		assertTrue(caller.completed);
+		assertArrayEquals(data, Files.readAllBytes(getDestFile().toPath()));
+		assertFalse(CheckpointJournal.getJournalFile(getDestFile()).exists());
+	}
+}
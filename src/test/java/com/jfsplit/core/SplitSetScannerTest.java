@@ -0,0 +1,83 @@
+/*
+ * SplitSetScannerTest.java
+ * A test of JFSplit core.
+ * Copyright (C) 2011 Suhaib Khan
+ * suhaibklm@gmail.com
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jfsplit.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that ordinary files whose extensions look like split file suffixes
+ * are not found as split sets.
+ */
+public class SplitSetScannerTest {
+
+	@TempDir
+	Path folder;
+
+	private void createFiles(String... file_names) throws IOException {
+		for (String file_name : file_names) {
+			Files.write(folder.resolve(file_name), new byte[] { 1, 2, 3 });
+		}
+	}
+
+	@Test
+	public void skipsNumericExtensionsNextToSplitSet() throws IOException {
+		createFiles("video.mp4.001", "video.mp4.002", "video.mp4.003",
+				"photo.2023", "app.log.100", "app.log.101", "notes.tar.gz");
+		SplitSetScanner scanner = new SplitSetScanner();
+		scanner.scan(folder.toFile());
+
+		List<SplitSet> split_sets = scanner.getSplitSets();
+		assertEquals(1, split_sets.size());
+		assertEquals("video.mp4", split_sets.get(0).getBaseName());
+		assertTrue(split_sets.get(0).isComplete());
+		assertTrue(scanner.getIncompleteSets().isEmpty());
+	}
+
+	@Test
+	public void findsNumberedSetListedInChecksumFile() throws IOException {
+		createFiles("video.mp4.002", "video.mp4.003");
+		ChecksumSidecar sidecar = new ChecksumSidecar();
+		for (int i = 1; i <= 3; i++) {
+			sidecar.put("video.mp4.00" + i, DigestAlgorithm.CRC32, "00000000");
+		}
+		sidecar.write(ChecksumSidecar.getSidecarFile(folder.toFile(),
+				"video.mp4"));
+		SplitSetScanner scanner = new SplitSetScanner();
+		scanner.scan(folder.toFile());
+
+		List<SplitSet> split_sets = scanner.getIncompleteSets();
+		assertEquals(1, split_sets.size());
+		assertArrayEquals(new int[] { 1 }, split_sets.get(0).getMissingParts());
+		assertEquals(new File(folder.toFile(), "video.mp4.002"), split_sets
+				.get(0).getPartFile(2));
+	}
+}